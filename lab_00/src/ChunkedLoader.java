@@ -0,0 +1,399 @@
+//
+// ChunkedLoader
+//
+// This class reads a file of locations in parallel. The file is split into
+// byte ranges, each of which is moved forward to the start of a line, and
+// the ranges are parsed as independent tasks on a fork-join pool. Each
+// task records its locations in a MapBox of its own, which removes the
+// duplicates found within that range, and which uses the same kind of
+// name index as the caller's MapBox and streams if it does. A streaming
+// range keeps only the coordinates of its locations, and their names are
+// read again from the file as they are merged. The per-range results are
+// merged into the caller's MapBox in file order, so a location that is
+// repeated across ranges is reported as a duplicate of the occurrence
+// nearest the start of the file, exactly as with sequential reading. As
+// with sequential reading, a blank line ends the input. Alternatively,
+// the ranges can all be recorded directly into one ConcurrentMapBox, with
+// each location numbered by its range and line, which needs no merge.
+// Sequential reading reuses its Location after a duplicate, so a line that
+// leaves out coordinates takes them from the duplicate before it, and
+// otherwise starts from zeros. Each range notes how many coordinates each
+// of its lines gave, and the lines are given the coordinates they would
+// have had once it is known, in file order, which ones are duplicates.
+//
+
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+
+public class ChunkedLoader {
+	// Ranges smaller than this are not worth a task of their own.
+	static final long MIN_CHUNK_BYTES = 1 << 20;
+	// The sequence number of a location recorded directly into a
+	// ConcurrentMapBox is its range number, shifted left by this many bits,
+	// plus its line number within the range.
+	static final int SEQUENCE_BITS = 40;
+
+	String locationFilename;
+	int chunkCount;
+	ForkJoinPool pool;
+	// duplicates holds the duplicate locations found by the last load, in
+	// the order in which they appear in the file.
+	public List<Location> duplicates;
+	// The coordinates that the Location of sequential reading would hold
+	// before the next line is read ...
+	double carriedLongitude, carriedLatitude;
+
+	// Constructor with filename specified, using a few ranges per processor
+	// on the common pool ...
+	public ChunkedLoader(String locationFilename) {
+		this(locationFilename, 4 * Runtime.getRuntime().availableProcessors(), ForkJoinPool.commonPool());
+	}
+
+	// Constructor with filename, number of ranges, and pool specified ...
+	public ChunkedLoader(String locationFilename, int chunkCount, ForkJoinPool pool) {
+		this.locationFilename = locationFilename;
+		this.chunkCount = Math.max(1, chunkCount);
+		this.pool = pool;
+		this.duplicates = new ArrayList<Location>();
+	}
+
+	// Chunk -- The result of parsing one byte range of the file. The
+	// duplicateOrdinals record the line position, within the range, of
+	// each duplicate, and fields holds the number of coordinates on each
+	// line. When the range streams, part is dropped once the range is
+	// parsed, longitudes and latitudes hold the coordinates of each of its
+	// locations, and contents holds the bytes of the range, so that their
+	// names can be read again. When the locations are recorded directly
+	// into a ConcurrentMapBox, recorded holds the location of each line
+	// instead.
+	static class Chunk {
+		MapBox part;
+		boolean streaming = false;
+		byte[] fields = new byte[16];
+		double[] longitudes;
+		double[] latitudes;
+		ByteBuffer contents;
+		List<Location> recorded = new ArrayList<Location>();
+		List<Location> duplicates = new ArrayList<Location>();
+		List<Integer> duplicateOrdinals = new ArrayList<Integer>();
+		boolean ended = false;
+		int lines = 0;
+	}
+
+	// ChunkTask -- Parse the locations in one byte range of the file.
+	static class ChunkTask extends RecursiveTask<Chunk> {
+		static final long serialVersionUID = 1;
+		FileChannel channel;
+		long start;
+		long end;
+		// When target is not null, locations are recorded in a MapBox like
+		// it, to be merged into it. When shared is not null, locations are
+		// recorded directly into it, numbered from firstSequence ...
+		MapBox target;
+		ConcurrentMapBox shared;
+		long firstSequence;
+
+		ChunkTask(FileChannel channel, long start, long end) {
+			this.channel = channel;
+			this.start = start;
+			this.end = end;
+			this.target = null;
+			this.shared = null;
+			this.firstSequence = 0;
+		}
+
+		@Override
+		protected Chunk compute() {
+			Chunk chunk = new Chunk();
+			if (target != null) {
+				chunk.part = new MapBox(target.isRetainingLocations(), target.loc.empty());
+				chunk.streaming = !target.isRetainingLocations();
+				if (chunk.streaming) {
+					chunk.longitudes = new double[16];
+					chunk.latitudes = new double[16];
+				}
+			}
+			try {
+				chunk.contents = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+				MapFileReader in = new MapFileReader(chunk.contents.duplicate());
+				Location loc = new Location();
+				int ordinal = 0;
+				// Stop at the end of the range ...
+				while (!in.atEnd()) {
+					int fields = loc.readFields(in);
+					if (fields < 0) {
+						// A blank line ends the input ...
+						chunk.ended = true;
+						break;
+					}
+					if (ordinal == chunk.fields.length)
+						chunk.fields = Arrays.copyOf(chunk.fields, 2 * ordinal);
+					chunk.fields[ordinal] = (byte) fields;
+					if (shared != null) {
+						shared.recordLocation(loc, firstSequence + ordinal);
+						chunk.recorded.add(loc);
+						loc = new Location();
+					} else if (!chunk.part.recordLocation(loc)) {
+						chunk.duplicates.add(loc);
+						chunk.duplicateOrdinals.add(ordinal);
+						loc = new Location();
+					} else if (chunk.streaming) {
+						// Keep only the coordinates, and reuse the Location ...
+						int n = chunk.part.size() - 1;
+						if (n == chunk.longitudes.length) {
+							chunk.longitudes = Arrays.copyOf(chunk.longitudes, 2 * n);
+							chunk.latitudes = Arrays.copyOf(chunk.latitudes, 2 * n);
+						}
+						chunk.longitudes[n] = loc.longitude;
+						chunk.latitudes[n] = loc.latitude;
+					} else {
+						loc = new Location();
+					}
+					ordinal++;
+				}
+				chunk.lines = ordinal;
+				if (chunk.streaming) {
+					// The names are only needed to find the duplicates
+					// within the range ...
+					chunk.part = null;
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return (chunk);
+		}
+	}
+
+	// load -- Read all of the locations in the file into the given MapBox,
+	// recording the duplicates that were discarded. Return false if the
+	// file could not be read.
+	public boolean load(MapBox map) {
+		duplicates.clear();
+		carry(null, false);
+		Path path = Paths.get(locationFilename);
+		if (!Files.isReadable(path)) {
+			return (false);
+		}
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long[] bounds = splitLines(channel);
+			List<ChunkTask> tasks = new ArrayList<ChunkTask>();
+			for (int i = 0; i + 1 < bounds.length; i++) {
+				ChunkTask task = new ChunkTask(channel, bounds[i], bounds[i + 1]);
+				task.target = map;
+				tasks.add(task);
+			}
+			for (ChunkTask task : tasks) {
+				pool.execute(task);
+			}
+			// Merge the ranges in file order, letting go of each range once
+			// it is merged ...
+			for (int i = 0; i < tasks.size(); i++) {
+				Chunk chunk = tasks.get(i).join();
+				tasks.set(i, null);
+				merge(chunk, map);
+				if (chunk.ended)
+					break;
+			}
+			return (true);
+		} catch (IOException | UncheckedIOException e) {
+			// Something went wrong ...
+			return (false);
+		}
+	}
+
+	// load -- Read all of the locations in the file into the given
+	// ConcurrentMapBox, with every range recording its locations directly.
+	// The duplicates that were discarded are also recorded. Return false if
+	// the file could not be read.
+	public boolean load(ConcurrentMapBox map) {
+		duplicates.clear();
+		Path path = Paths.get(locationFilename);
+		if (!Files.isReadable(path)) {
+			return (false);
+		}
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long[] bounds = splitLines(channel);
+			List<ChunkTask> tasks = new ArrayList<ChunkTask>();
+			for (int i = 0; i + 1 < bounds.length; i++) {
+				ChunkTask task = new ChunkTask(channel, bounds[i], bounds[i + 1]);
+				task.shared = map;
+				task.firstSequence = (long) i << SEQUENCE_BITS;
+				tasks.add(task);
+			}
+			for (ChunkTask task : tasks) {
+				pool.execute(task);
+			}
+			List<Chunk> chunks = new ArrayList<Chunk>();
+			for (ChunkTask task : tasks) {
+				chunks.add(task.join());
+			}
+			// Once every range is recorded, forget whatever followed the
+			// first blank line ...
+			for (int i = 0; i < chunks.size(); i++) {
+				if (chunks.get(i).ended) {
+					map.truncate(tasks.get(i).firstSequence + chunks.get(i).lines - 1);
+					break;
+				}
+			}
+			// Then give the lines that left out coordinates those they
+			// would have had, in file order ...
+			boolean moved = false;
+			carry(null, false);
+			for (Chunk chunk : chunks) {
+				for (int ordinal = 0; ordinal < chunk.lines; ordinal++) {
+					Location loc = chunk.recorded.get(ordinal);
+					moved |= inherit(loc, chunk.fields[ordinal]);
+					carry(loc, !map.isKept(loc));
+				}
+				if (chunk.ended)
+					break;
+			}
+			if (moved)
+				map.moved();
+			duplicates.addAll(map.duplicates());
+			return (true);
+		} catch (IOException | UncheckedIOException e) {
+			// Something went wrong ...
+			return (false);
+		}
+	}
+
+	// merge -- Record the locations of one range in the given MapBox, line
+	// by line, interleaving the duplicates found within the range with
+	// those that repeat a location from an earlier range, so that all
+	// duplicates are listed in file order. Each line is given the
+	// coordinates it left out before it is recorded. When the range
+	// streamed, the names of its locations are read again from its lines,
+	// and one Location is reused for all of them but the duplicates.
+	void merge(Chunk chunk, MapBox map) throws IOException {
+		int d = 0;
+		int n = 0;
+		Iterator<Location> kept = null;
+		MapFileReader names = null;
+		Location scratch = null;
+		if (chunk.streaming) {
+			names = new MapFileReader(chunk.contents.duplicate());
+			scratch = new Location();
+		} else {
+			kept = chunk.part.locations.iterator();
+		}
+		for (int ordinal = 0; ordinal < chunk.lines; ordinal++) {
+			if (names != null)
+				names.readLine();
+			Location loc;
+			boolean duplicate;
+			if (d < chunk.duplicates.size() && chunk.duplicateOrdinals.get(d) == ordinal) {
+				loc = chunk.duplicates.get(d++);
+				inherit(loc, chunk.fields[ordinal]);
+				duplicate = true;
+			} else {
+				if (names == null) {
+					loc = kept.next();
+				} else {
+					loc = scratch;
+					loc.name = names.next();
+					loc.longitude = chunk.longitudes[n];
+					loc.latitude = chunk.latitudes[n];
+					n++;
+				}
+				inherit(loc, chunk.fields[ordinal]);
+				duplicate = !map.recordLocation(loc);
+				if (duplicate && loc == scratch) {
+					scratch = new Location();
+				}
+			}
+			if (duplicate) {
+				duplicates.add(loc);
+			}
+			carry(loc, duplicate);
+		}
+	}
+
+	// inherit -- Give the given location, read from a line with the given
+	// number of coordinates, the carried coordinates in place of those the
+	// line left out. Return true if a coordinate changed.
+	boolean inherit(Location loc, int fields) {
+		boolean changed = false;
+		if (fields < 1) {
+			changed |= (Double.doubleToRawLongBits(loc.longitude) != Double.doubleToRawLongBits(carriedLongitude));
+			loc.longitude = carriedLongitude;
+		}
+		if (fields < 2) {
+			changed |= (Double.doubleToRawLongBits(loc.latitude) != Double.doubleToRawLongBits(carriedLatitude));
+			loc.latitude = carriedLatitude;
+		}
+		return (changed);
+	}
+
+	// carry -- Carry the coordinates of the given location to the next
+	// line if it was a duplicate, as sequential reading reuses its Location
+	// then, and zeros otherwise, or if the location is null.
+	void carry(Location loc, boolean duplicate) {
+		if (loc != null && duplicate) {
+			carriedLongitude = loc.longitude;
+			carriedLatitude = loc.latitude;
+		} else {
+			carriedLongitude = 0.0;
+			carriedLatitude = 0.0;
+		}
+	}
+
+	// splitLines -- Return the byte offsets bounding each range, with every
+	// interior bound moved forward to the start of the next line.
+	long[] splitLines(FileChannel channel) throws IOException {
+		long size = channel.size();
+		int n = (int) Math.max(1, Math.min(chunkCount, size / MIN_CHUNK_BYTES));
+		// Keep every range addressable by a single array ...
+		while (size / n >= Integer.MAX_VALUE) {
+			n++;
+		}
+		long[] bounds = new long[n + 1];
+		bounds[n] = size;
+		ByteBuffer probe = ByteBuffer.allocate(4096);
+		for (int i = 1; i < n; i++) {
+			long pos = Math.max(bounds[i - 1], i * (size / n));
+			bounds[i] = nextLineStart(channel, probe, pos, size);
+		}
+		return (bounds);
+	}
+
+	// nextLineStart -- Return the offset of the first line that starts at
+	// or after the given offset. A line starts at the beginning of the file
+	// or just after a "\n", a "\r" or a "\r\n".
+	static long nextLineStart(FileChannel channel, ByteBuffer probe, long pos, long size) throws IOException {
+		if (pos == 0)
+			return (0);
+		// Look at the byte before pos, so that a range that already starts
+		// at the beginning of a line is kept as is ...
+		long at = pos - 1;
+		while (at < size) {
+			probe.clear();
+			int count = channel.read(probe, at);
+			if (count <= 0)
+				break;
+			for (int i = 0; i < count; i++) {
+				byte b = probe.get(i);
+				if (b == '\n')
+					return (at + i + 1);
+				if (b == '\r') {
+					// Do not split a "\r\n" pair ...
+					if (i + 1 < count)
+						return (probe.get(i + 1) == '\n') ? (at + i + 2) : (at + i + 1);
+					ByteBuffer next = ByteBuffer.allocate(1);
+					if (channel.read(next, at + i + 1) == 1 && next.get(0) == '\n')
+						return (at + i + 2);
+					return (at + i + 1);
+				}
+			}
+			at += count;
+		}
+		return (size);
+	}
+
+}
@@ -0,0 +1,218 @@
+//
+// ConcurrentMapBox
+//
+// This class implements a bounding box that many threads may fill at once.
+// Each recorded location carries a sequence number, giving its position in
+// the input, and, just as with a MapBox filled in that order, the location
+// with the lowest sequence number is kept when a name is repeated and the
+// others are reported as duplicates. Names are claimed in a
+// ConcurrentHashMap, so threads recording different names do not wait for
+// one another. The four edges are kept as the bits of doubles in atomic
+// longs, and they are widened with compare-and-set loops, without locks.
+// Rarely, a location is recorded after a later duplicate of it has already
+// widened the edges, or the order in which coordinates arrive could
+// otherwise matter (NaN, or zeros of both signs). The edges are then marked
+// stale, and they are recomputed from the kept locations, in sequence
+// order, the next time they are read. Either way, once every location
+// has been recorded, the results are identical to those of a MapBox
+// filled by a single thread. Results should only be read after recording
+// is complete.
+//
+
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+
+public class ConcurrentMapBox {
+	// Record -- A location, together with its position in the input.
+	static class Record {
+		long sequence;
+		Location loc;
+
+		Record(long sequence, Location loc) {
+			this.sequence = sequence;
+			this.loc = loc;
+		}
+	}
+
+	ConcurrentHashMap<String, Record> kept;
+	ConcurrentLinkedQueue<Record> duplicates;
+	AtomicLong sequencer;
+	// The edges, as the raw bits of doubles, and NaN until a location is
+	// recorded ...
+	AtomicLong xmin, xmax, ymin, ymax;
+	volatile boolean stale;
+
+	// Default constructor ...
+	public ConcurrentMapBox() {
+		this.kept = new ConcurrentHashMap<String, Record>();
+		this.duplicates = new ConcurrentLinkedQueue<Record>();
+		this.sequencer = new AtomicLong();
+		long nan = Double.doubleToRawLongBits(Double.NaN);
+		this.xmin = new AtomicLong(nan);
+		this.xmax = new AtomicLong(nan);
+		this.ymin = new AtomicLong(nan);
+		this.ymax = new AtomicLong(nan);
+		this.stale = false;
+	}
+
+	// recordLocation -- Record the given location, numbering it in order of
+	// arrival. Return false if a location with the same name was already
+	// recorded.
+	public boolean recordLocation(Location loc) {
+		return (recordLocation(loc, sequencer.getAndIncrement()));
+	}
+
+	// recordLocation -- Record the given location at the given position in
+	// the input. Return false if a location with the same name and an
+	// earlier position was already recorded. A location for which true is
+	// returned may still turn out to be a duplicate, if a location with the
+	// same name and an earlier position is recorded later.
+	public boolean recordLocation(Location loc, long sequence) {
+		Record mine = new Record(sequence, loc);
+		Record prior = kept.putIfAbsent(loc.name, mine);
+		while (prior != null) {
+			if (prior.sequence < sequence) {
+				duplicates.add(mine);
+				return (false);
+			}
+			if (kept.replace(loc.name, prior, mine)) {
+				// The location kept so far was a later duplicate of this
+				// one, and it may have widened the edges ...
+				duplicates.add(prior);
+				stale = true;
+				break;
+			}
+			prior = kept.putIfAbsent(loc.name, mine);
+		}
+		lower(xmin, loc.longitude);
+		raise(xmax, loc.longitude);
+		lower(ymin, loc.latitude);
+		raise(ymax, loc.latitude);
+		return (true);
+	}
+
+	// isKept -- Return true if and only if the given Location is the one
+	// kept for its name, rather than a duplicate.
+	boolean isKept(Location loc) {
+		Record r = kept.get(loc.name);
+		return (r != null && r.loc == loc);
+	}
+
+	// moved -- Note that the coordinates of recorded locations have been
+	// changed, so that the edges are recomputed the next time they are
+	// read.
+	void moved() {
+		stale = true;
+	}
+
+	// truncate -- Forget every location recorded at a position after the
+	// given one, as if the input had ended there.
+	public void truncate(long lastSequence) {
+		kept.values().removeIf(r -> r.sequence > lastSequence);
+		duplicates.removeIf(r -> r.sequence > lastSequence);
+		stale = true;
+	}
+
+	// lower -- Move the given edge down to the given value, if it is lower.
+	void lower(AtomicLong edge, double value) {
+		if (Double.isNaN(value)) {
+			// A NaN only matters if it comes first, so leave it to refresh ...
+			stale = true;
+			return;
+		}
+		long bits = edge.get();
+		double current = Double.longBitsToDouble(bits);
+		while (Double.isNaN(current) || value < current) {
+			if (edge.compareAndSet(bits, Double.doubleToRawLongBits(value)))
+				return;
+			bits = edge.get();
+			current = Double.longBitsToDouble(bits);
+		}
+		if (value == current && Double.doubleToRawLongBits(value) != bits)
+			stale = true;
+	}
+
+	// raise -- Move the given edge up to the given value, if it is higher.
+	void raise(AtomicLong edge, double value) {
+		if (Double.isNaN(value)) {
+			// A NaN only matters if it comes first, so leave it to refresh ...
+			stale = true;
+			return;
+		}
+		long bits = edge.get();
+		double current = Double.longBitsToDouble(bits);
+		while (Double.isNaN(current) || value > current) {
+			if (edge.compareAndSet(bits, Double.doubleToRawLongBits(value)))
+				return;
+			bits = edge.get();
+			current = Double.longBitsToDouble(bits);
+		}
+		if (value == current && Double.doubleToRawLongBits(value) != bits)
+			stale = true;
+	}
+
+	// refresh -- Recompute stale edges by recording the kept locations, in
+	// order, in a MapBox.
+	synchronized void refresh() {
+		if (!stale)
+			return;
+		MapBox box = new MapBox(false);
+		for (Location l : locations()) {
+			box.recordLocation(l);
+		}
+		xmin.set(Double.doubleToRawLongBits(box.Westmost()));
+		xmax.set(Double.doubleToRawLongBits(box.Eastmost()));
+		ymin.set(Double.doubleToRawLongBits(box.Southmost()));
+		ymax.set(Double.doubleToRawLongBits(box.Northmost()));
+		stale = false;
+	}
+
+	public double Westmost() {
+		refresh();
+		return (Double.longBitsToDouble(xmin.get()));
+	}
+
+	public double Eastmost() {
+		refresh();
+		return (Double.longBitsToDouble(xmax.get()));
+	}
+
+	public double Southmost() {
+		refresh();
+		return (Double.longBitsToDouble(ymin.get()));
+	}
+
+	public double Northmost() {
+		refresh();
+		return (Double.longBitsToDouble(ymax.get()));
+	}
+
+	// size -- Return the number of distinct locations recorded.
+	public int size() {
+		return (kept.size());
+	}
+
+	// locations -- Return the kept locations, in input order.
+	public List<Location> locations() {
+		return (inOrder(kept.values()));
+	}
+
+	// duplicates -- Return the duplicate locations, in input order.
+	public List<Location> duplicates() {
+		return (inOrder(duplicates));
+	}
+
+	static List<Location> inOrder(Collection<Record> records) {
+		List<Record> sorted = new ArrayList<Record>(records);
+		sorted.sort(Comparator.comparingLong((Record r) -> r.sequence));
+		List<Location> result = new ArrayList<Location>(sorted.size());
+		for (Record r : sorted) {
+			result.add(r.loc);
+		}
+		return (result);
+	}
+
+}
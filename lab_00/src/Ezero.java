@@ -11,6 +11,24 @@
 // the locations, with no duplicates listed. Program output is
 // written to the standard output stream.
 //
+// Usage:  java Ezero [-stream] [-parallel] [-concurrent] [-compact]
+//                   [location-file]
+//
+// With "-stream", locations are not retained once they have been
+// recorded, so only the bounding box and the number of locations are
+// reported, and memory use does not grow with the retained records.
+// With "-parallel", the file is split into ranges that are parsed
+// concurrently by a ChunkedLoader, and the duplicates are reported,
+// in file order, once the whole file has been read. With "-compact",
+// duplicate names are detected with a FingerprintNameIndex, which keeps
+// the names in primitive arrays rather than in a HashSet. With
+// "-concurrent", the ranges are all recorded directly into a single
+// ConcurrentMapBox, rather than being merged into a MapBox. The
+// location file may also be a LocationArchive, which is detected by the
+// magic number and format version at its start. Its locations are
+// already free of duplicates, and its bounding box is taken from its
+// header, so with "-stream" none of its locations are read at all.
+//
 // David Noelle -- Mon Sep  3 16:35:51 PDT 2018
 //
 
@@ -21,48 +39,120 @@ import java.io.*;
 public class Ezero {
 
 	public static void main(String[] args) {
-		MapBox map = new MapBox();
 		String locationFilename = "locations-duplicates.dat";
+		boolean streaming = false;
+		boolean parallel = false;
+		boolean compact = false;
+		boolean concurrent = false;
+
+		// Process command line arguments ...
+		for (String arg : args) {
+			if (arg.equals("-stream")) {
+				streaming = true;
+			} else if (arg.equals("-parallel")) {
+				parallel = true;
+			} else if (arg.equals("-concurrent")) {
+				concurrent = true;
+			} else if (arg.equals("-compact")) {
+				compact = true;
+			} else {
+				locationFilename = arg;
+			}
+		}
+		MapBox map = new MapBox(!streaming, compact ? new FingerprintNameIndex() : new NameIndex());
 
 		System.out.println("BOUNDING BOX TEST");
 		System.out.flush();
+		if (LocationArchive.isArchive(locationFilename)) {
+			// Read the bounding box, and perhaps the locations, from a
+			// binary archive ...
+			try (LocationArchive archive = LocationArchive.open(locationFilename)) {
+				report(archive.Westmost(), archive.Eastmost(), archive.Northmost(), archive.Southmost());
+				System.out.println("The Locations:");
+				if (streaming) {
+					System.out.printf("  %d locations (not retained)\n", archive.size());
+				} else {
+					for (long i = 0; i < archive.size(); i++) {
+						archive.location(i).write(System.out, true);
+						System.out.println("");
+					}
+				}
+			} catch (IOException e) {
+				// Something went wrong ...
+				System.err.println("ERROR: IO exception thrown.");
+			}
+			// Done ...
+			System.out.println("BOUNDING BOX TEST COMPLETE");
+			return;
+		}
+		if (concurrent) {
+			// Read the locations into a ConcurrentMapBox object, in
+			// parallel ...
+			ConcurrentMapBox shared = new ConcurrentMapBox();
+			ChunkedLoader loader = new ChunkedLoader(locationFilename);
+			if (loader.load(shared)) {
+				for (Location dup : loader.duplicates) {
+					System.out.printf("Duplicate Location:  %s\n", dup.name);
+				}
+				report(shared.Westmost(), shared.Eastmost(), shared.Northmost(), shared.Southmost());
+				System.out.println("The Locations:");
+				for (Location outloc : shared.locations()) {
+					outloc.write(System.out, true);
+					System.out.println("");
+				}
+			} else {
+				System.err.println("ERROR: Could not read file.");
+			}
+			// Done ...
+			System.out.println("BOUNDING BOX TEST COMPLETE");
+			return;
+		}
+		if (parallel) {
+			// Read the locations into the allocated MapBox object, in
+			// parallel ...
+			ChunkedLoader loader = new ChunkedLoader(locationFilename);
+			if (loader.load(map)) {
+				for (Location dup : loader.duplicates) {
+					System.out.printf("Duplicate Location:  %s\n", dup.name);
+				}
+				report(map);
+			} else {
+				System.err.println("ERROR: Could not read file.");
+			}
+			// Done ...
+			System.out.println("BOUNDING BOX TEST COMPLETE");
+			return;
+		}
 		// Read the locations into the allocated MapBox object ...
 		try {
 			// Open file of locations ...
 			File locFile = new File(locationFilename);
 			if (locFile.exists() && locFile.canRead()) {
-				// Convert File to a BufferedReader ...
-				FileInputStream locFileIn = new FileInputStream(locFile);
-				InputStreamReader locISReader = new InputStreamReader(locFileIn);
-				BufferedReader locBufferedReader = new BufferedReader(locISReader);
+				MapFileReader locReader = MapFileReader.open(locationFilename);
 				// Read all of the locations in the file into the
 				// allocated MapBox object. First, allocate storage
 				// for the first location to be read ...
 				Location loc = new Location();
 				// Read one location at a time ...
-				while (loc.read(locBufferedReader)) {
+				while (loc.read(locReader)) {
 					// Record location in the MapBox object ...
 					if (!(map.recordLocation(loc))) {
 						// A false return value from "recordLocation"
 						// means that the location is a duplicate.
 						System.out.printf("Duplicate Location:  %s\n", loc.name);
-					} else {
+					} else if (map.isRetainingLocations()) {
 						// Allocate storage for the next location ...
 						loc = new Location();
+					} else {
+						// Reuse the storage, clearing the coordinates,
+						// which a line holding only a name leaves as they
+						// were ...
+						loc.longitude = 0.0;
+						loc.latitude = 0.0;
 					}
 				}
-				// Output results ...
-				// Output size of bounding box ...
-				System.out.println("The Bounding Box:");
-				System.out.printf("  West Edge = %f\n", map.Westmost());
-				System.out.printf("  East Edge = %f\n", map.Eastmost());
-				System.out.printf("  North Edge = %f\n", map.Northmost());
-				System.out.printf("  South Edge = %f\n", map.Southmost());
-				System.out.println("The Locations:");
-				for (Location outloc : map.locations) {
-					outloc.write(System.out, true);
-					System.out.println("");
-				}
+				locReader.close();
+				report(map);
 			} else {
 				System.err.println("ERROR: Could not open file for reading.");
 			}
@@ -73,4 +163,30 @@ public class Ezero {
 		// Done ...
 		System.out.println("BOUNDING BOX TEST COMPLETE");
 	}
+
+	// report -- Output the bounding box of the given MapBox, followed by
+	// its locations, if they were retained.
+	static void report(MapBox map) {
+		// Output results ...
+		report(map.Westmost(), map.Eastmost(), map.Northmost(), map.Southmost());
+		System.out.println("The Locations:");
+		if (map.isRetainingLocations()) {
+			for (Location outloc : map.locations) {
+				outloc.write(System.out, true);
+				System.out.println("");
+			}
+		} else {
+			System.out.printf("  %d locations (not retained)\n", map.size());
+		}
+	}
+
+	// report -- Output the given edges of a bounding box.
+	static void report(double west, double east, double north, double south) {
+		// Output size of bounding box ...
+		System.out.println("The Bounding Box:");
+		System.out.printf("  West Edge = %f\n", west);
+		System.out.printf("  East Edge = %f\n", east);
+		System.out.printf("  North Edge = %f\n", north);
+		System.out.printf("  South Edge = %f\n", south);
+	}
 }
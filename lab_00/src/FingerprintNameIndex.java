@@ -0,0 +1,262 @@
+//
+// FingerprintNameIndex
+//
+// This class extends the NameIndex class, keeping location names in
+// primitive arrays rather than in a HashSet of String objects. Each name
+// is reduced to a 64-bit fingerprint, which is stored in an open-addressing
+// table with linear probing. The characters of each name are copied, one
+// byte per character when possible, into large pages of bytes, and the
+// table records where each name begins. Names are only compared when
+// their fingerprints are equal, which is almost always because they are
+// the same name, so the index is exact without touching the pages on most
+// lookups. A name costs roughly sixteen bytes of table per slot, plus its
+// characters, and the garbage collector sees only a handful of large
+// arrays, no matter how many names are recorded. A name that is removed
+// leaves its fingerprint in the table, marked as removed, so that the
+// names placed after it can still be found; its characters stay in the
+// pages until the index is discarded. The table is never larger than
+// MAX_CAPACITY slots, so at most MAX_NAMES names can be recorded, and
+// recording another throws an IllegalStateException.
+//
+
+
+import java.util.*;
+
+
+public class FingerprintNameIndex extends NameIndex {
+	static final int PAGE_BITS = 20;
+	static final int PAGE_SIZE = 1 << PAGE_BITS;
+	// The largest table, and the most names it holds while staying at
+	// most three quarters full ...
+	public static final int MAX_CAPACITY = 1 << 30;
+	public static final int MAX_NAMES = ((MAX_CAPACITY - 1) / 4) * 3;
+
+	// The table: a fingerprint of zero marks an empty slot, and an address
+	// of REMOVED marks a slot whose name has been removed ...
+	static final long REMOVED = -1L;
+	long[] fingerprints;
+	long[] addresses;
+	int mask;
+	int count;
+	int removed;
+	// The pages holding the characters of the names ...
+	byte[][] pages;
+	int pageCount;
+	int pageFill;
+
+	// Default constructor ...
+	public FingerprintNameIndex() {
+		this(1024);
+	}
+
+	// Constructor with the expected number of names specified ...
+	public FingerprintNameIndex(int expectedNames) {
+		super(null);
+		int capacity = 16;
+		while (capacity < expectedNames + expectedNames / 3 && capacity < MAX_CAPACITY) {
+			capacity *= 2;
+		}
+		this.fingerprints = new long[capacity];
+		this.addresses = new long[capacity];
+		this.mask = capacity - 1;
+		this.count = 0;
+		this.removed = 0;
+		this.pages = new byte[16][];
+		this.pageCount = 0;
+		this.pageFill = 0;
+	}
+
+	// add -- Record the given name. Return true if and only if it was not
+	// already recorded.
+	@Override
+	public boolean add(String name) {
+		long fp = fingerprint(name);
+		int slot = (int) fp & mask;
+		int reusable = -1;
+		while (fingerprints[slot] != 0) {
+			if (addresses[slot] == REMOVED) {
+				if (reusable < 0)
+					reusable = slot;
+			} else if (fingerprints[slot] == fp && matches(addresses[slot], name)) {
+				return (false);
+			}
+			slot = (slot + 1) & mask;
+		}
+		if (count == MAX_NAMES)
+			throw new IllegalStateException("A FingerprintNameIndex holds at most " + MAX_NAMES + " names.");
+		if (reusable >= 0) {
+			slot = reusable;
+			removed--;
+		}
+		fingerprints[slot] = fp;
+		addresses[slot] = store(name);
+		count++;
+		// Keep the table at most three quarters full ...
+		if (count + removed > (mask / 4) * 3)
+			grow();
+		return (true);
+	}
+
+	// remove -- Forget the given name. Return true if and only if it was
+	// recorded.
+	@Override
+	public boolean remove(String name) {
+		int slot = find(name);
+		if (slot < 0)
+			return (false);
+		addresses[slot] = REMOVED;
+		count--;
+		removed++;
+		return (true);
+	}
+
+	// contains -- Return true if and only if the given name is recorded.
+	@Override
+	public boolean contains(String name) {
+		return (find(name) >= 0);
+	}
+
+	// find -- Return the slot holding the given name, or -1 if the name is
+	// not recorded.
+	int find(String name) {
+		long fp = fingerprint(name);
+		int slot = (int) fp & mask;
+		while (fingerprints[slot] != 0) {
+			if (fingerprints[slot] == fp && addresses[slot] != REMOVED && matches(addresses[slot], name))
+				return (slot);
+			slot = (slot + 1) & mask;
+		}
+		return (-1);
+	}
+
+	// size -- Return the number of names recorded.
+	@Override
+	public int size() {
+		return (count);
+	}
+
+	// fingerprint -- Return a well-mixed, nonzero 64-bit hash of the given
+	// name.
+	static long fingerprint(String name) {
+		long h = 0xcbf29ce484222325L;
+		for (int i = 0; i < name.length(); i++) {
+			h ^= name.charAt(i);
+			h *= 0x100000001b3L;
+		}
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return ((h == 0) ? 1 : h);
+	}
+
+	// store -- Copy the characters of the given name into the pages, and
+	// return the address at which they begin. Each name starts with its
+	// length, doubled, plus one if its characters take two bytes each.
+	long store(String name) {
+		int length = name.length();
+		int wide = 0;
+		for (int i = 0; i < length; i++) {
+			if (name.charAt(i) > 0xFF) {
+				wide = 1;
+				break;
+			}
+		}
+		int header = (length << 1) | wide;
+		int need = varintSize(header) + (length << wide);
+		if (pageCount == 0 || pageFill + need > pages[pageCount - 1].length) {
+			// Start a new page, large enough for even a very long name ...
+			if (pageCount == pages.length)
+				pages = Arrays.copyOf(pages, 2 * pageCount);
+			pages[pageCount++] = new byte[Math.max(PAGE_SIZE, need)];
+			pageFill = 0;
+		}
+		byte[] page = pages[pageCount - 1];
+		long address = ((long) (pageCount - 1) << PAGE_BITS) | pageFill;
+		int at = pageFill;
+		while (header >= 0x80) {
+			page[at++] = (byte) (header | 0x80);
+			header >>>= 7;
+		}
+		page[at++] = (byte) header;
+		for (int i = 0; i < length; i++) {
+			char c = name.charAt(i);
+			if (wide != 0)
+				page[at++] = (byte) (c >>> 8);
+			page[at++] = (byte) c;
+		}
+		pageFill = at;
+		return (address);
+	}
+
+	// matches -- Return true if and only if the name stored at the given
+	// address is the given name.
+	boolean matches(long address, String name) {
+		byte[] page = pages[(int) (address >>> PAGE_BITS)];
+		int at = (int) (address & (PAGE_SIZE - 1));
+		int header = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = page[at++];
+			header |= (b & 0x7F) << shift;
+			shift += 7;
+		} while (b < 0);
+		int length = header >>> 1;
+		boolean wide = (header & 1) != 0;
+		if (length != name.length())
+			return (false);
+		for (int i = 0; i < length; i++) {
+			int c = page[at++] & 0xFF;
+			if (wide)
+				c = (c << 8) | (page[at++] & 0xFF);
+			if (c != name.charAt(i))
+				return (false);
+		}
+		return (true);
+	}
+
+	// grow -- Rebuild the table, doubling its size unless most of the slots
+	// in use belong to removed names, or it already has MAX_CAPACITY slots.
+	// The fingerprints are enough to place every name again, so no names
+	// are read.
+	void grow() {
+		long[] oldFingerprints = fingerprints;
+		long[] oldAddresses = addresses;
+		int capacity = (count > removed && oldFingerprints.length < MAX_CAPACITY)
+				? 2 * oldFingerprints.length : oldFingerprints.length;
+		fingerprints = new long[capacity];
+		addresses = new long[capacity];
+		mask = capacity - 1;
+		removed = 0;
+		for (int i = 0; i < oldFingerprints.length; i++) {
+			long fp = oldFingerprints[i];
+			if (fp != 0 && oldAddresses[i] != REMOVED) {
+				int slot = (int) fp & mask;
+				while (fingerprints[slot] != 0) {
+					slot = (slot + 1) & mask;
+				}
+				fingerprints[slot] = fp;
+				addresses[slot] = oldAddresses[i];
+			}
+		}
+	}
+
+	// varintSize -- Return the number of bytes needed to store the given
+	// nonnegative value seven bits at a time.
+	static int varintSize(int value) {
+		int size = 1;
+		while (value >= 0x80) {
+			value >>>= 7;
+			size++;
+		}
+		return (size);
+	}
+
+	// empty -- Return a new, empty index of the same kind as this one.
+	public NameIndex empty() {
+		return (new FingerprintNameIndex());
+	}
+
+}
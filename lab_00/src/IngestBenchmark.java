@@ -0,0 +1,323 @@
+//
+// IngestBenchmark
+//
+// This class provides a "main" method that measures how quickly locations
+// are ingested. For each requested number of rows, a file of locations is
+// generated, with a given fraction of repeated names, and each benchmark
+// is run a few times to warm up the virtual machine and then a few more
+// times to be measured. The benchmarks cover reading locations with
+// Location.read, both through a Scanner and through a MapFileReader,
+// recording locations that have already been read with
+// MapBox.recordLocation, and the whole of Ezero, with its output
+// discarded. For each, the records per second, the bytes allocated per
+// record, and the number of garbage collections and the time they took
+// are reported. A benchmark whose input would not fit comfortably in the
+// heap is skipped, as is the Scanner benchmark beyond a million rows, as
+// it would take hours.
+//
+// Usage:  java IngestBenchmark [-rows n,n,...] [-duplicates fraction]
+//                              [-warmup k] [-iterations k]
+//                              [-only benchmark]
+//
+// The default sizes are 1K, 10K, 100K, and 1M rows, and sizes up to 100M
+// rows may be given, with a large enough heap for the benchmarks that
+// retain their locations. Allocation is measured on the benchmarking
+// thread, so it excludes work done by other threads.
+//
+
+
+import java.io.*;
+import java.lang.management.*;
+import java.util.*;
+
+
+public class IngestBenchmark {
+	// A pre-parsed location costs about this many bytes of heap ...
+	static final long BYTES_PER_LOCATION = 128;
+	// The Scanner benchmark is skipped for inputs larger than this ...
+	static final long SCANNER_LIMIT = 1000000;
+
+	// Benchmark -- One measured operation. Each run processes the rows of
+	// the given input file, and returns the number of records processed.
+	interface Benchmark {
+		long run(Input input) throws IOException;
+	}
+
+	// Input -- A generated file of locations, and, when it fits, the
+	// same locations already parsed.
+	static class Input {
+		File file;
+		long rows;
+		Location[] parsed;
+	}
+
+	// Result -- The measurements of one benchmark on one input.
+	static class Result {
+		long records;
+		long nanos;
+		long allocated;
+		long gcCount;
+		long gcMillis;
+	}
+
+	static double duplicateFraction = 0.1;
+	static int warmup = 2;
+	static int iterations = 5;
+
+	public static void main(String[] args) {
+		long[] sizes = { 1000, 10000, 100000, 1000000 };
+		String only = null;
+
+		// Process command line arguments ...
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if (i + 1 < args.length && arg.equals("-rows")) {
+				String[] parts = args[++i].split(",");
+				sizes = new long[parts.length];
+				for (int j = 0; j < parts.length; j++) {
+					sizes[j] = Long.parseLong(parts[j].trim());
+				}
+			} else if (i + 1 < args.length && arg.equals("-duplicates")) {
+				duplicateFraction = Double.parseDouble(args[++i]);
+			} else if (i + 1 < args.length && arg.equals("-warmup")) {
+				warmup = Integer.parseInt(args[++i]);
+			} else if (i + 1 < args.length && arg.equals("-iterations")) {
+				iterations = Math.max(1, Integer.parseInt(args[++i]));
+			} else if (i + 1 < args.length && arg.equals("-only")) {
+				only = args[++i];
+			} else {
+				System.err.println("Usage:  java IngestBenchmark [-rows n,n,...] [-duplicates fraction] [-warmup k] [-iterations k] [-only benchmark]");
+				return;
+			}
+		}
+
+		LinkedHashMap<String, Benchmark> benchmarks = new LinkedHashMap<String, Benchmark>();
+		benchmarks.put("read-scanner", IngestBenchmark::readScanner);
+		benchmarks.put("read", IngestBenchmark::read);
+		benchmarks.put("record", input -> record(input, new MapBox(true, new NameIndex())));
+		benchmarks.put("record-compact", input -> record(input, new MapBox(false, new FingerprintNameIndex())));
+		benchmarks.put("ezero", input -> ezero(input.file.getPath()));
+		benchmarks.put("ezero-stream", input -> ezero("-stream", "-compact", input.file.getPath()));
+
+		System.out.printf("%-15s %12s %14s %14s %10s %10s\n", "benchmark", "rows", "records/sec", "bytes/record", "GCs", "GC ms");
+		for (long rows : sizes) {
+			Input input = null;
+			try {
+				input = generate(rows);
+				for (Map.Entry<String, Benchmark> entry : benchmarks.entrySet()) {
+					String name = entry.getKey();
+					if (only != null && !only.equals(name))
+						continue;
+					String skip = skipReason(name, input);
+					if (skip != null) {
+						System.out.printf("%-15s %12d   (skipped: %s)\n", name, rows, skip);
+						continue;
+					}
+					if (name.startsWith("record") && input.parsed == null)
+						input.parsed = parse(input);
+					Result result = measure(entry.getValue(), input);
+					System.out.printf("%-15s %12d %14.0f %14.1f %10d %10d\n", name, rows,
+							result.records * 1e9 / result.nanos,
+							(result.allocated < 0) ? Double.NaN : (double) result.allocated / result.records,
+							result.gcCount, result.gcMillis);
+					System.out.flush();
+				}
+			} catch (IOException e) {
+				// Something went wrong ...
+				System.err.println("ERROR: " + e.getMessage());
+			} finally {
+				if (input != null)
+					input.file.delete();
+			}
+		}
+	}
+
+	// skipReason -- Return why the named benchmark cannot be run on the
+	// given input, or null if it can.
+	static String skipReason(String name, Input input) {
+		if (name.equals("read-scanner") && input.rows > SCANNER_LIMIT)
+			return ("too slow beyond " + SCANNER_LIMIT + " rows");
+		if ((name.startsWith("record") || name.equals("ezero"))
+				&& input.rows * BYTES_PER_LOCATION > Runtime.getRuntime().maxMemory() / 2)
+			return ("locations do not fit in the heap");
+		return (null);
+	}
+
+	// measure -- Run the given benchmark on the given input, first to warm
+	// up and then to measure, totalling the measured runs.
+	static Result measure(Benchmark benchmark, Input input) throws IOException {
+		for (int i = 0; i < warmup; i++) {
+			benchmark.run(input);
+		}
+		System.gc();
+		Result result = new Result();
+		long allocated = allocatedBytes();
+		long gcCount = gcCount();
+		long gcMillis = gcMillis();
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			result.records += benchmark.run(input);
+		}
+		result.nanos = Math.max(1, System.nanoTime() - start);
+		long allocatedAfter = allocatedBytes();
+		result.allocated = (allocated < 0 || allocatedAfter < 0) ? -1 : allocatedAfter - allocated;
+		result.gcCount = gcCount() - gcCount;
+		result.gcMillis = gcMillis() - gcMillis;
+		return (result);
+	}
+
+	// readScanner -- Read every location in the input file with the
+	// Scanner-based Location.read.
+	static long readScanner(Input input) throws IOException {
+		long records = 0;
+		try (BufferedReader in = new BufferedReader(new FileReader(input.file))) {
+			Location loc = new Location();
+			while (loc.read(in)) {
+				records++;
+			}
+		}
+		return (records);
+	}
+
+	// read -- Read every location in the input file with the
+	// MapFileReader-based Location.read.
+	static long read(Input input) throws IOException {
+		long records = 0;
+		try (MapFileReader in = MapFileReader.open(input.file.getPath())) {
+			Location loc = new Location();
+			while (loc.read(in)) {
+				records++;
+			}
+		}
+		return (records);
+	}
+
+	// record -- Record every pre-parsed location of the input in the given
+	// MapBox.
+	static long record(Input input, MapBox map) {
+		for (Location loc : input.parsed) {
+			map.recordLocation(loc);
+		}
+		return (input.parsed.length);
+	}
+
+	// ezero -- Run Ezero with the given arguments, discarding its output.
+	static long ezero(String... args) throws IOException {
+		PrintStream out = System.out;
+		try (PrintStream sink = new PrintStream(OutputStream.nullOutputStream())) {
+			System.setOut(sink);
+			Ezero.main(args);
+		} finally {
+			System.setOut(out);
+		}
+		return (lineCount(args[args.length - 1]));
+	}
+
+	static HashMap<String, Long> lineCounts = new HashMap<String, Long>();
+
+	static long lineCount(String filename) throws IOException {
+		Long n = lineCounts.get(filename);
+		if (n == null) {
+			n = 0L;
+			try (MapFileReader in = MapFileReader.open(filename)) {
+				while (in.readLine()) {
+					n++;
+				}
+			}
+			lineCounts.put(filename, n);
+		}
+		return (n);
+	}
+
+	// generate -- Write a temporary file with the given number of rows of
+	// locations. Names are repeated at the configured rate, and the
+	// coordinates are drawn from a fixed seed, so that runs are comparable.
+	static Input generate(long rows) throws IOException {
+		Input input = new Input();
+		input.rows = rows;
+		input.file = File.createTempFile("locations-", ".dat");
+		input.file.deleteOnExit();
+		Random random = new Random(175);
+		long distinct = 0;
+		StringBuilder line = new StringBuilder();
+		try (Writer out = new BufferedWriter(new FileWriter(input.file), 1 << 16)) {
+			for (long i = 0; i < rows; i++) {
+				long id = (distinct > 0 && random.nextDouble() < duplicateFraction)
+						? (long) (random.nextDouble() * distinct) : distinct++;
+				line.setLength(0);
+				line.append("loc-").append(id);
+				while (line.length() < 16) {
+					line.append(' ');
+				}
+				appendCoordinate(line, random.nextInt(360000) - 180000);
+				line.append(' ');
+				appendCoordinate(line, random.nextInt(180000) - 90000);
+				line.append('\n');
+				out.append(line);
+			}
+		}
+		return (input);
+	}
+
+	// appendCoordinate -- Append the given number of thousandths of a
+	// degree, in decimal.
+	static void appendCoordinate(StringBuilder line, int thousandths) {
+		if (thousandths < 0) {
+			line.append('-');
+			thousandths = -thousandths;
+		}
+		line.append(thousandths / 1000).append('.');
+		int fraction = thousandths % 1000;
+		if (fraction < 100)
+			line.append('0');
+		if (fraction < 10)
+			line.append('0');
+		line.append(fraction);
+	}
+
+	// parse -- Read every location of the input into an array, so that
+	// recording can be measured apart from parsing.
+	static Location[] parse(Input input) throws IOException {
+		Location[] parsed = new Location[(int) input.rows];
+		int n = 0;
+		try (MapFileReader in = MapFileReader.open(input.file.getPath())) {
+			Location loc = new Location();
+			while (n < parsed.length && loc.read(in)) {
+				parsed[n++] = loc;
+				loc = new Location();
+			}
+		}
+		return ((n == parsed.length) ? parsed : Arrays.copyOf(parsed, n));
+	}
+
+	// allocatedBytes -- Return the number of bytes allocated so far by this
+	// thread, or -1 if the virtual machine cannot tell.
+	static long allocatedBytes() {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) threads;
+			if (hotspot.isThreadAllocatedMemorySupported() && hotspot.isThreadAllocatedMemoryEnabled())
+				return (hotspot.getThreadAllocatedBytes(Thread.currentThread().getId()));
+		}
+		return (-1);
+	}
+
+	// gcCount -- Return the number of garbage collections so far.
+	static long gcCount() {
+		long total = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			total += Math.max(0, gc.getCollectionCount());
+		}
+		return (total);
+	}
+
+	// gcMillis -- Return the time spent on garbage collection so far.
+	static long gcMillis() {
+		long total = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			total += Math.max(0, gc.getCollectionTime());
+		}
+		return (total);
+	}
+
+}
@@ -84,6 +84,50 @@ public class Location {
 		}
 	}
 
+	// read -- Read a location description from the next line of the given
+	// MapFileReader into this object, accepting exactly what the version of
+	// this method that takes a BufferedReader accepts, but without building
+	// a Scanner for the line. Return true if at least a name was read and
+	// false otherwise.
+	public boolean read(MapFileReader in) {
+		return (readFields(in) >= 0);
+	}
+
+	// readFields -- Read a location description from the next line of the
+	// given MapFileReader into this object, as "read" does. Return the
+	// number of coordinates read, which may be 0, 1, or 2, or -1 if not
+	// even a name was read. Coordinates that are not read are left as they
+	// were.
+	int readFields(MapFileReader in) {
+		try {
+			if (!in.readLine())
+				// No more input, at all ...
+				return (-1);
+			if (in.hasNext()) {
+				// There is something to read ...
+				name = in.next();
+				if (in.hasNextDouble()) {
+					// There is a longitude to read ...
+					longitude = in.nextDouble();
+					if (in.hasNextDouble()) {
+						// There is a latitude to read ...
+						latitude = in.nextDouble();
+						return (2);
+					}
+					return (1);
+				}
+				// At least a name was successfully read ...
+				return (0);
+			} else {
+				// Did not even read a name ...
+				return (-1);
+			}
+		} catch (IOException e) {
+			// Something went wrong ...
+			return (-1);
+		}
+	}
+
 	// write -- Write the name of this location to the given stream. If the
 	// "showCoords" argument is true, then also output the Cartesian
 	// coordinates of this location, separated by blanks, on the same line.
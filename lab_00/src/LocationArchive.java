@@ -0,0 +1,299 @@
+//
+// LocationArchive
+//
+// This class implements a binary, column-oriented file of locations, which
+// can be read far faster than a text file of locations. The file begins
+// with a header that records the number of locations and the bounding box
+// that surrounds them, so the edges of the box are known without reading
+// any of the locations. The header is followed by a name dictionary, made
+// of a table of offsets and the names themselves in UTF-8, and then by a
+// column of longitudes and a column of latitudes. Every section starts on
+// an eight-byte boundary. An archive is read through memory-mapped
+// regions of the file, so opening one reads nothing but the header, and
+// a location is only read when it is asked for. The locations in an
+// archive are distinct: when a text file is converted, duplicates are
+// discarded, keeping the first occurrence, just as MapBox does.
+//
+// Usage:  java LocationArchive text-location-file archive-file
+//
+// File layout (all numbers big-endian):
+//      0  int     magic number, "LBOX"
+//      4  int     format version
+//      8  long    number of locations, n
+//     16  double  west, east, south, and north edges
+//     48  long    offset of the name offset table, n+1 longs
+//     56  long    offset of the name bytes
+//     64  long    offset of the longitude column, n doubles
+//     72  long    offset of the latitude column, n doubles
+//
+
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+
+
+public class LocationArchive implements Closeable {
+	static final int MAGIC = 0x4C424F58;
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 80;
+	// Files are mapped in segments of this many bytes, which is a multiple
+	// of eight, so no number is ever split between segments ...
+	static final int SEGMENT_BITS = 30;
+	static final long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+
+	FileChannel channel;
+	ByteBuffer[] segments;
+	long count;
+	double west, east, south, north;
+	long nameOffsets;
+	long nameBytes;
+	long longitudes;
+	long latitudes;
+
+	// open -- Open the archive file with the given pathname for reading.
+	public static LocationArchive open(String filename) throws IOException {
+		LocationArchive archive = new LocationArchive();
+		archive.channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+		long size = archive.channel.size();
+		int n = (int) ((size + SEGMENT_SIZE - 1) >>> SEGMENT_BITS);
+		archive.segments = new ByteBuffer[n];
+		for (int i = 0; i < n; i++) {
+			long start = (long) i << SEGMENT_BITS;
+			archive.segments[i] = archive.channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, size - start));
+		}
+		if (size < HEADER_SIZE || archive.getInt(0) != MAGIC || archive.getInt(4) != VERSION) {
+			archive.close();
+			throw new IOException("Not a location archive: " + filename);
+		}
+		archive.count = archive.getLong(8);
+		archive.west = archive.getDouble(16);
+		archive.east = archive.getDouble(24);
+		archive.south = archive.getDouble(32);
+		archive.north = archive.getDouble(40);
+		archive.nameOffsets = archive.getLong(48);
+		archive.nameBytes = archive.getLong(56);
+		archive.longitudes = archive.getLong(64);
+		archive.latitudes = archive.getLong(72);
+		return (archive);
+	}
+
+	// isArchive -- Return true if and only if the file with the given
+	// pathname starts like a location archive, with both the magic number
+	// and the format version. A text file of locations may start with the
+	// characters of the magic number, if its first name does, but cannot
+	// hold the zero bytes of the version, so it is never mistaken for an
+	// archive.
+	public static boolean isArchive(String filename) {
+		try (DataInputStream in = new DataInputStream(new FileInputStream(filename))) {
+			return (in.readInt() == MAGIC && in.readInt() == VERSION);
+		} catch (IOException e) {
+			return (false);
+		}
+	}
+
+	// close -- Close the archive file.
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	// size -- Return the number of locations in the archive.
+	public long size() {
+		return (count);
+	}
+
+	public double Westmost() {
+		return (west);
+	}
+
+	public double Eastmost() {
+		return (east);
+	}
+
+	public double Southmost() {
+		return (south);
+	}
+
+	public double Northmost() {
+		return (north);
+	}
+
+	// name -- Return the name of the location with the given index.
+	public String name(long i) {
+		long start = getLong(nameOffsets + 8 * i);
+		long end = getLong(nameOffsets + 8 * (i + 1));
+		byte[] bytes = new byte[(int) (end - start)];
+		long at = nameBytes + start;
+		for (int k = 0; k < bytes.length; k++) {
+			bytes[k] = segments[(int) ((at + k) >>> SEGMENT_BITS)].get((int) ((at + k) & (SEGMENT_SIZE - 1)));
+		}
+		return (new String(bytes, StandardCharsets.UTF_8));
+	}
+
+	// longitude -- Return the longitude of the location with the given index.
+	public double longitude(long i) {
+		return (getDouble(longitudes + 8 * i));
+	}
+
+	// latitude -- Return the latitude of the location with the given index.
+	public double latitude(long i) {
+		return (getDouble(latitudes + 8 * i));
+	}
+
+	// location -- Return a new Location object for the location with the
+	// given index.
+	public Location location(long i) {
+		return (new Location(name(i), longitude(i), latitude(i)));
+	}
+
+	// loadInto -- Record every location in the archive, in order, in the
+	// given MapBox.
+	public void loadInto(MapBox map) {
+		for (long i = 0; i < count; i++) {
+			map.recordLocation(location(i));
+		}
+	}
+
+	int getInt(long pos) {
+		return (segments[(int) (pos >>> SEGMENT_BITS)].getInt((int) (pos & (SEGMENT_SIZE - 1))));
+	}
+
+	long getLong(long pos) {
+		return (segments[(int) (pos >>> SEGMENT_BITS)].getLong((int) (pos & (SEGMENT_SIZE - 1))));
+	}
+
+	double getDouble(long pos) {
+		return (segments[(int) (pos >>> SEGMENT_BITS)].getDouble((int) (pos & (SEGMENT_SIZE - 1))));
+	}
+
+	// Writer -- Writes an archive one location at a time. The sections are
+	// first written to temporary files, since their sizes are not known in
+	// advance, and then copied after the header when the writer is closed.
+	public static class Writer {
+		String filename;
+		File[] parts;
+		DataOutputStream offsetsOut, namesOut, longitudesOut, latitudesOut;
+		long count;
+		long nameEnd;
+
+		// Constructor with the pathname of the archive specified ...
+		public Writer(String filename) throws IOException {
+			this.filename = filename;
+			this.parts = new File[4];
+			File dir = new File(filename).getAbsoluteFile().getParentFile();
+			for (int i = 0; i < parts.length; i++) {
+				parts[i] = File.createTempFile("lbox", ".part", dir);
+				parts[i].deleteOnExit();
+			}
+			this.offsetsOut = open(parts[0]);
+			this.namesOut = open(parts[1]);
+			this.longitudesOut = open(parts[2]);
+			this.latitudesOut = open(parts[3]);
+			this.count = 0;
+			this.nameEnd = 0;
+			offsetsOut.writeLong(0);
+		}
+
+		static DataOutputStream open(File f) throws IOException {
+			return (new DataOutputStream(new BufferedOutputStream(new FileOutputStream(f), 1 << 16)));
+		}
+
+		// add -- Append the given location to the archive.
+		public void add(Location loc) throws IOException {
+			byte[] name = loc.name.getBytes(StandardCharsets.UTF_8);
+			namesOut.write(name);
+			nameEnd += name.length;
+			offsetsOut.writeLong(nameEnd);
+			longitudesOut.writeDouble(loc.longitude);
+			latitudesOut.writeDouble(loc.latitude);
+			count++;
+		}
+
+		// finish -- Write the header, with the given edges, and the sections,
+		// completing the archive.
+		public void finish(double west, double east, double south, double north) throws IOException {
+			offsetsOut.close();
+			// Pad the names to an eight-byte boundary ...
+			while (nameEnd % 8 != 0) {
+				namesOut.write(0);
+				nameEnd++;
+			}
+			namesOut.close();
+			longitudesOut.close();
+			latitudesOut.close();
+			long nameOffsets = HEADER_SIZE;
+			long nameBytes = nameOffsets + parts[0].length();
+			long longitudes = nameBytes + parts[1].length();
+			long latitudes = longitudes + parts[2].length();
+			try (FileChannel out = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+				header.putInt(MAGIC).putInt(VERSION).putLong(count);
+				header.putDouble(west).putDouble(east).putDouble(south).putDouble(north);
+				header.putLong(nameOffsets).putLong(nameBytes).putLong(longitudes).putLong(latitudes);
+				header.flip();
+				while (header.hasRemaining()) {
+					out.write(header);
+				}
+				for (File part : parts) {
+					try (FileChannel in = FileChannel.open(part.toPath(), StandardOpenOption.READ)) {
+						long done = 0;
+						long size = in.size();
+						while (done < size) {
+							done += in.transferTo(done, size - done, out);
+						}
+					}
+				}
+			} finally {
+				for (File part : parts) {
+					part.delete();
+				}
+			}
+		}
+	}
+
+	// convert -- Read the text file of locations with the given pathname,
+	// and write its distinct locations, with their bounding box, to an
+	// archive with the other given pathname. Only the names are held in
+	// memory, so files of any length can be converted. Return the number
+	// of duplicates discarded.
+	public static long convert(String textFilename, String archiveFilename) throws IOException {
+		MapBox box = new MapBox(false, new FingerprintNameIndex());
+		Writer writer = new Writer(archiveFilename);
+		long duplicates = 0;
+		try (MapFileReader in = MapFileReader.open(textFilename)) {
+			Location loc = new Location();
+			while (loc.read(in)) {
+				if (box.recordLocation(loc)) {
+					writer.add(loc);
+					// Clear the coordinates, which a line holding only a
+					// name leaves as they were, where Ezero would allocate
+					// a new Location. After a duplicate, Ezero reuses the
+					// Location as it is, and so does this loop ...
+					loc.longitude = 0.0;
+					loc.latitude = 0.0;
+				} else {
+					duplicates++;
+				}
+			}
+		}
+		writer.finish(box.Westmost(), box.Eastmost(), box.Southmost(), box.Northmost());
+		return (duplicates);
+	}
+
+	public static void main(String[] args) {
+		if (args.length != 2) {
+			System.err.println("Usage:  java LocationArchive text-location-file archive-file");
+			return;
+		}
+		try {
+			long duplicates = convert(args[0], args[1]);
+			System.out.printf("Discarded %d duplicate locations.\n", duplicates);
+		} catch (IOException e) {
+			// Something went wrong ...
+			System.err.println("ERROR: " + e.getMessage());
+		}
+	}
+
+}
@@ -0,0 +1,260 @@
+//
+// LocationQuadtree
+//
+// This class implements a spatial index of Location objects, treating
+// their coordinates as Cartesian coordinates. The index is a bucketed
+// point quadtree: each leaf holds up to a fixed number of locations, and
+// a leaf that overflows is split into four quadrants. The tree is built
+// incrementally, as locations are inserted, and its root square is doubled
+// in size whenever a location falls outside of it, so the extent of the
+// map need not be known in advance. Two queries are supported: finding
+// all of the locations inside a rectangle, and finding the locations
+// nearest to a point. Both visit only the parts of the tree that can
+// contain an answer. Locations whose coordinates are not finite numbers
+// cannot be placed in the tree, and they are left out of it.
+//
+
+
+import java.util.*;
+
+
+public class LocationQuadtree {
+	// The number of locations a leaf holds before it is split ...
+	static final int BUCKET_SIZE = 16;
+	// Leaves this deep are never split, so that many locations at the
+	// same point cannot split a leaf forever ...
+	static final int MAX_DEPTH = 48;
+
+	// Quad -- A square region of the map. A leaf keeps its locations in
+	// a bucket, while an interior node has four children, some of which
+	// may be null. Child i covers the east half if bit 0 of i is set, and
+	// the north half if bit 1 of i is set.
+	static class Quad {
+		double minX, minY, size;
+		Location[] bucket;
+		int count;
+		Quad[] children;
+
+		Quad(double minX, double minY, double size) {
+			this.minX = minX;
+			this.minY = minY;
+			this.size = size;
+			this.bucket = new Location[BUCKET_SIZE];
+			this.count = 0;
+			this.children = null;
+		}
+
+		boolean covers(double x, double y) {
+			return (x >= minX && x < minX + size && y >= minY && y < minY + size);
+		}
+
+		int quadrant(double x, double y) {
+			double half = size / 2;
+			return ((x >= minX + half) ? 1 : 0) | ((y >= minY + half) ? 2 : 0);
+		}
+
+		Quad child(int i) {
+			if (children[i] == null) {
+				double half = size / 2;
+				children[i] = new Quad(minX + (((i & 1) != 0) ? half : 0), minY + (((i & 2) != 0) ? half : 0), half);
+			}
+			return (children[i]);
+		}
+
+		// distanceSq -- Return the squared distance from the given point to
+		// the nearest point of this square.
+		double distanceSq(double x, double y) {
+			double dx = Math.max(0.0, Math.max(minX - x, x - (minX + size)));
+			double dy = Math.max(0.0, Math.max(minY - y, y - (minY + size)));
+			return (dx * dx + dy * dy);
+		}
+	}
+
+	// Entry -- A quadrant or a location, with its squared distance from
+	// the point of a nearest-neighbor query.
+	static class Entry {
+		double distanceSq;
+		Quad quad;
+		Location loc;
+
+		Entry(double distanceSq, Quad quad, Location loc) {
+			this.distanceSq = distanceSq;
+			this.quad = quad;
+			this.loc = loc;
+		}
+	}
+
+	Quad root;
+	int count;
+
+	// Default constructor ...
+	public LocationQuadtree() {
+		this.root = null;
+		this.count = 0;
+	}
+
+	// size -- Return the number of locations in the tree.
+	public int size() {
+		return (count);
+	}
+
+	// insert -- Add the given location to the tree. Return false if its
+	// coordinates cannot be placed in the tree.
+	public boolean insert(Location loc) {
+		double x = loc.longitude;
+		double y = loc.latitude;
+		if (!Double.isFinite(x) || !Double.isFinite(y))
+			return (false);
+		if (root == null) {
+			root = new Quad(x - 0.5, y - 0.5, 1.0);
+		}
+		while (!root.covers(x, y)) {
+			grow(x, y);
+		}
+		Quad node = root;
+		int depth = 0;
+		while (node.children != null) {
+			node = node.child(node.quadrant(x, y));
+			depth++;
+		}
+		add(node, loc, depth);
+		count++;
+		return (true);
+	}
+
+	// remove -- Remove the given location object from the tree. Return
+	// false if it is not in the tree.
+	public boolean remove(Location loc) {
+		double x = loc.longitude;
+		double y = loc.latitude;
+		if (root == null || !root.covers(x, y))
+			return (false);
+		Quad node = root;
+		while (node.children != null) {
+			node = node.children[node.quadrant(x, y)];
+			if (node == null)
+				return (false);
+		}
+		for (int i = 0; i < node.count; i++) {
+			if (node.bucket[i] == loc) {
+				node.bucket[i] = node.bucket[--node.count];
+				node.bucket[node.count] = null;
+				count--;
+				return (true);
+			}
+		}
+		return (false);
+	}
+
+	// grow -- Double the root square, extending it toward the given point.
+	// The old root becomes one of the quadrants of the new root.
+	void grow(double x, double y) {
+		double minX = (x < root.minX) ? root.minX - root.size : root.minX;
+		double minY = (y < root.minY) ? root.minY - root.size : root.minY;
+		Quad bigger = new Quad(minX, minY, 2 * root.size);
+		bigger.bucket = null;
+		bigger.children = new Quad[4];
+		bigger.children[((root.minX > minX) ? 1 : 0) | ((root.minY > minY) ? 2 : 0)] = root;
+		root = bigger;
+	}
+
+	// add -- Add a location to the given leaf, splitting the leaf if it
+	// overflows.
+	void add(Quad leaf, Location loc, int depth) {
+		if (leaf.count == leaf.bucket.length) {
+			if (depth < MAX_DEPTH) {
+				split(leaf);
+				Quad node = leaf.child(leaf.quadrant(loc.longitude, loc.latitude));
+				add(node, loc, depth + 1);
+				return;
+			}
+			leaf.bucket = Arrays.copyOf(leaf.bucket, 2 * leaf.count);
+		}
+		leaf.bucket[leaf.count++] = loc;
+	}
+
+	// split -- Turn the given leaf into an interior node, moving its
+	// locations into its children.
+	void split(Quad leaf) {
+		Location[] bucket = leaf.bucket;
+		int n = leaf.count;
+		leaf.bucket = null;
+		leaf.count = 0;
+		leaf.children = new Quad[4];
+		for (int i = 0; i < n; i++) {
+			Quad child = leaf.child(leaf.quadrant(bucket[i].longitude, bucket[i].latitude));
+			child.bucket[child.count++] = bucket[i];
+		}
+	}
+
+	// locationsWithin -- Return all of the locations whose coordinates are
+	// within the given rectangle, edges included.
+	public List<Location> locationsWithin(double west, double east, double south, double north) {
+		List<Location> found = new ArrayList<Location>();
+		if (root != null)
+			collect(root, west, east, south, north, found);
+		return (found);
+	}
+
+	void collect(Quad node, double west, double east, double south, double north, List<Location> found) {
+		if (node.minX > east || node.minX + node.size < west || node.minY > north || node.minY + node.size < south)
+			return;
+		if (node.children == null) {
+			for (int i = 0; i < node.count; i++) {
+				Location loc = node.bucket[i];
+				if (loc.longitude >= west && loc.longitude <= east && loc.latitude >= south && loc.latitude <= north)
+					found.add(loc);
+			}
+		} else {
+			for (Quad child : node.children) {
+				if (child != null)
+					collect(child, west, east, south, north, found);
+			}
+		}
+	}
+
+	// nearestLocations -- Return up to k locations nearest to the given
+	// point, nearest first. Quadrants are visited in order of their
+	// distance from the point, and the search stops once no unvisited
+	// quadrant can hold a location nearer than the k found so far.
+	public List<Location> nearestLocations(double x, double y, int k) {
+		List<Location> nearest = new ArrayList<Location>();
+		if (root == null || k <= 0)
+			return (nearest);
+		PriorityQueue<Entry> quads = new PriorityQueue<Entry>(Comparator.comparingDouble((Entry e) -> e.distanceSq));
+		// The best locations found so far, farthest first ...
+		PriorityQueue<Entry> best = new PriorityQueue<Entry>(Comparator.comparingDouble((Entry e) -> -e.distanceSq));
+		quads.add(new Entry(root.distanceSq(x, y), root, null));
+		while (!quads.isEmpty()) {
+			Entry entry = quads.poll();
+			if (best.size() == k && entry.distanceSq > best.peek().distanceSq)
+				break;
+			Quad node = entry.quad;
+			if (node.children == null) {
+				for (int i = 0; i < node.count; i++) {
+					Location loc = node.bucket[i];
+					double dx = loc.longitude - x;
+					double dy = loc.latitude - y;
+					double d = dx * dx + dy * dy;
+					if (best.size() < k) {
+						best.add(new Entry(d, null, loc));
+					} else if (d < best.peek().distanceSq) {
+						best.poll();
+						best.add(new Entry(d, null, loc));
+					}
+				}
+			} else {
+				for (Quad child : node.children) {
+					if (child != null)
+						quads.add(new Entry(child.distanceSq(x, y), child, null));
+				}
+			}
+		}
+		while (!best.isEmpty()) {
+			nearest.add(best.poll().loc);
+		}
+		Collections.reverse(nearest);
+		return (nearest);
+	}
+
+}
@@ -5,64 +5,280 @@ import java.util.*;
 
 
 public class MapBox {
+	// locations holds the retained locations in the order in which they
+	// were recorded. It is an ArrayList until removal is enabled, and a
+	// LocationList viewing byName afterwards. changes counts the locations
+	// put in or removed from byName.
 	public List<Location> locations;
-	
-	Set<String> loc;
-	Hashtable<String, Double> box;
-	
+	Map<String, Location> byName;
+	int changes;
+
+	// The names recorded so far, used to detect duplicates ...
+	NameIndex loc;
+	// The edges of the box are kept in primitive fields, so recording a
+	// location does no hashing or boxing to update them.
+	double xmin, xmax, ymin, ymax;
+	// count is the number of distinct locations recorded so far. When
+	// retainLocations is false, the MapBox streams: recorded Location
+	// objects are not kept in locations, and only their names are
+	// remembered in order to report duplicates.
+	int count;
+	boolean retainLocations;
+	// spatial indexes the retained locations by their coordinates. It is
+	// built the first time it is needed, and it is then kept up to date
+	// as locations are recorded.
+	LocationQuadtree spatial;
+	// Once removal is enabled, the coordinates of the recorded locations
+	// are also counted in these ordered multisets, one per axis, so that
+	// an edge can be found again in logarithmic time when the location
+	// that defined it is removed.
+	TreeMap<Double, Integer> longitudes;
+	TreeMap<Double, Integer> latitudes;
+
 	public MapBox() {
+		this(true);
+	}
+
+	public MapBox(boolean retainLocations) {
+		this(retainLocations, new NameIndex());
+	}
+
+	// Constructor with the index used to detect duplicate names
+	// specified ...
+	public MapBox(boolean retainLocations, NameIndex names) {
 		this.locations = new ArrayList<Location>();
-		this.loc = new HashSet<String>();
-		this.box = new Hashtable<String, Double>();
+		this.loc = names;
+		this.retainLocations = retainLocations;
+		this.spatial = null;
+		this.byName = null;
+		this.changes = 0;
+		this.longitudes = null;
+		this.latitudes = null;
+		this.count = 0;
+		this.xmin = Double.NaN;
+		this.xmax = Double.NaN;
+		this.ymin = Double.NaN;
+		this.ymax = Double.NaN;
 	}
-	
+
 	public double Westmost() {
-		return box.get("xmin");
+		return xmin;
 	}
-	
+
 	public double Eastmost() {
-		return box.get("xmax");
+		return xmax;
 	}
-	
+
 	public double Southmost() {
-		return box.get("ymin");
+		return ymin;
 	}
-	
+
 	public double Northmost() {
-		return box.get("ymax");
+		return ymax;
+	}
+
+	// size -- Return the number of distinct locations recorded, whether or
+	// not they are retained.
+	public int size() {
+		return count;
+	}
+
+	public boolean isRetainingLocations() {
+		return retainLocations;
 	}
-	
+
+	// recordLocation -- Record the given location, returning false if a
+	// location with the same name was already recorded. When streaming,
+	// the caller is free to reuse the Location object afterwards.
 	public boolean recordLocation(Location loc) {
-		if (this.locations.size() == 0) {
-			this.locations.add(loc);
-			this.loc.add(loc.name);
-			this.box.put("xmin", loc.longitude);
-			this.box.put("xmax", loc.longitude);
-			this.box.put("ymin", loc.latitude);
-			this.box.put("ymax", loc.latitude);
-			return true;
-		}
-		
-		if (this.loc.contains(loc.name)) {
+		if (!this.loc.add(loc.name)) {
 			return false;
+		}
+		if (this.retainLocations) {
+			if (this.byName != null) {
+				this.byName.put(loc.name, loc);
+				this.changes++;
+				addCoordinate(this.longitudes, loc.longitude);
+				addCoordinate(this.latitudes, loc.latitude);
+			} else {
+				this.locations.add(loc);
+			}
+			if (this.spatial != null) {
+				this.spatial.insert(loc);
+			}
+		}
+
+		if (this.count == 0) {
+			xmin = loc.longitude;
+			xmax = loc.longitude;
+			ymin = loc.latitude;
+			ymax = loc.latitude;
 		} else {
-			this.loc.add(loc.name);
-			this.locations.add(loc);
-			
-			if (loc.longitude < box.get("xmin")) {
-				box.put("xmin", loc.longitude);
+			if (loc.longitude < xmin) {
+				xmin = loc.longitude;
+			}
+			if (loc.longitude > xmax) {
+				xmax = loc.longitude;
 			}
-			if (loc.longitude > box.get("xmax")) {
-				box.put("xmax", loc.longitude);
+			if (loc.latitude < ymin) {
+				ymin = loc.latitude;
 			}
-			if (loc.latitude < box.get("ymin")) {
-				box.put("ymin", loc.latitude);
+			if (loc.latitude > ymax) {
+				ymax = loc.latitude;
+			}
+		}
+		this.count++;
+
+		return true;
+	}
+
+	// enableSpatialIndex -- Index the retained locations by their
+	// coordinates, so that locationsWithin and nearestLocations need not
+	// scan every location. Locations recorded later are added to the
+	// index as they are recorded.
+	public void enableSpatialIndex() {
+		if (!this.retainLocations) {
+			throw new IllegalStateException("A streaming MapBox does not retain locations to index.");
+		}
+		if (this.spatial == null) {
+			this.spatial = new LocationQuadtree();
+			for (Location l : this.locations) {
+				this.spatial.insert(l);
 			}
-			if (loc.latitude > box.get("ymax")) {
-				box.put("ymax", loc.latitude);
+		}
+	}
+
+	// locationsWithin -- Return the retained locations that lie within the
+	// given edges, edges included.
+	public List<Location> locationsWithin(double west, double east, double south, double north) {
+		enableSpatialIndex();
+		return spatial.locationsWithin(west, east, south, north);
+	}
+
+	// nearestLocations -- Return up to k retained locations nearest to the
+	// given coordinates, nearest first.
+	public List<Location> nearestLocations(double longitude, double latitude, int k) {
+		enableSpatialIndex();
+		return spatial.nearestLocations(longitude, latitude, k);
+	}
+
+	// enableRemoval -- Prepare this MapBox for removeLocation. From now on
+	// the retained locations are kept by name, and their coordinates are
+	// kept in order along each axis, so that both recording and removing a
+	// location take logarithmic time. The locations list becomes a
+	// read-only view of them.
+	public void enableRemoval() {
+		if (!this.retainLocations) {
+			throw new IllegalStateException("A streaming MapBox does not retain locations to remove.");
+		}
+		if (this.byName == null) {
+			this.byName = new LinkedHashMap<String, Location>();
+			this.longitudes = new TreeMap<Double, Integer>();
+			this.latitudes = new TreeMap<Double, Integer>();
+			for (Location l : this.locations) {
+				this.byName.put(l.name, l);
+				addCoordinate(this.longitudes, l.longitude);
+				addCoordinate(this.latitudes, l.latitude);
 			}
-			
-			return true;
+			this.locations = new LocationList();
+		}
+	}
+
+	// removeLocation -- Remove the recorded location with the given name,
+	// moving any edge that it defined. Return false if no location with
+	// that name is recorded.
+	public boolean removeLocation(String name) {
+		enableRemoval();
+		Location gone = this.byName.remove(name);
+		if (gone == null) {
+			return false;
+		}
+		this.changes++;
+		this.loc.remove(name);
+		if (this.spatial != null) {
+			this.spatial.remove(gone);
+		}
+		removeCoordinate(this.longitudes, gone.longitude);
+		removeCoordinate(this.latitudes, gone.latitude);
+		this.count--;
+
+		if (this.count == 0) {
+			xmin = Double.NaN;
+			xmax = Double.NaN;
+			ymin = Double.NaN;
+			ymax = Double.NaN;
+		} else {
+			if (gone.longitude == xmin) {
+				xmin = lowest(this.longitudes);
+			}
+			if (gone.longitude == xmax) {
+				xmax = highest(this.longitudes);
+			}
+			if (gone.latitude == ymin) {
+				ymin = lowest(this.latitudes);
+			}
+			if (gone.latitude == ymax) {
+				ymax = highest(this.latitudes);
+			}
+		}
+
+		return true;
+	}
+
+	// addCoordinate -- Count one more occurrence of the given coordinate.
+	// Like the comparisons in recordLocation, the multisets ignore NaN.
+	static void addCoordinate(TreeMap<Double, Integer> axis, double value) {
+		if (!Double.isNaN(value)) {
+			axis.merge(value, 1, Integer::sum);
+		}
+	}
+
+	// removeCoordinate -- Count one less occurrence of the given coordinate.
+	static void removeCoordinate(TreeMap<Double, Integer> axis, double value) {
+		Integer n = axis.get(value);
+		if (n == null) {
+			return;
+		}
+		if (n == 1) {
+			axis.remove(value);
+		} else {
+			axis.put(value, n - 1);
+		}
+	}
+
+	// lowest -- Return the lowest coordinate counted on the given axis.
+	static double lowest(TreeMap<Double, Integer> axis) {
+		return axis.isEmpty() ? Double.NaN : axis.firstKey();
+	}
+
+	// highest -- Return the highest coordinate counted on the given axis.
+	static double highest(TreeMap<Double, Integer> axis) {
+		return axis.isEmpty() ? Double.NaN : axis.lastKey();
+	}
+
+	// LocationList -- A read-only list view of the locations in byName, in
+	// the order in which they were recorded. Iterating over it walks byName
+	// directly, and indexing it reads a copy of the locations in an array,
+	// which is made again only after byName has changed.
+	class LocationList extends AbstractList<Location> {
+		Location[] copy = null;
+		int copied = 0;
+
+		public int size() {
+			return byName.size();
+		}
+
+		public Location get(int index) {
+			if (copy == null || copied != changes) {
+				copy = byName.values().toArray(new Location[0]);
+				copied = changes;
+			}
+			Objects.checkIndex(index, copy.length);
+			return copy[index];
+		}
+
+		public Iterator<Location> iterator() {
+			return Collections.unmodifiableCollection(byName.values()).iterator();
 		}
 	}
 
@@ -0,0 +1,55 @@
+//
+// NameIndex
+//
+// This class implements the index of location names that a MapBox uses to
+// detect duplicate locations. This basic index keeps every name in a
+// HashSet, but classes that inherit from this one can override its
+// methods to store the names in some more compact way.
+//
+
+
+import java.util.*;
+
+
+public class NameIndex {
+	Set<String> names;
+
+	// Default constructor ...
+	public NameIndex() {
+		this.names = new HashSet<String>();
+	}
+
+	// Constructor with the set of names specified, which is null for
+	// classes that keep names in a set of their own ...
+	NameIndex(Set<String> names) {
+		this.names = names;
+	}
+
+	// add -- Record the given name. Return true if and only if it was not
+	// already recorded.
+	public boolean add(String name) {
+		return (names.add(name));
+	}
+
+	// remove -- Forget the given name. Return true if and only if it was
+	// recorded.
+	public boolean remove(String name) {
+		return (names.remove(name));
+	}
+
+	// contains -- Return true if and only if the given name is recorded.
+	public boolean contains(String name) {
+		return (names.contains(name));
+	}
+
+	// size -- Return the number of names recorded.
+	public int size() {
+		return (names.size());
+	}
+
+	// empty -- Return a new, empty index of the same kind as this one.
+	public NameIndex empty() {
+		return (new NameIndex());
+	}
+
+}
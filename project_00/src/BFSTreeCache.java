@@ -0,0 +1,158 @@
+//
+// BFSTreeCache
+//
+// This class answers many queries for the path with the fewest roads from
+// one location to another, when many of them share an initial location.
+// Rather than searching again for each pair, a breadth-first search is run
+// once from each initial location, over a RoadGraph, all the way out to
+// every location that can be reached.  The resulting search tree is kept
+// as two arrays indexed by location ID, giving the location each one was
+// reached from and the number of roads from the initial location.  A path
+// to any destination is then found by following the first array back
+// from the destination.  A fixed number of trees is kept, and when
+// another is needed, the one used least recently is discarded.  The cache
+// may be shared by several threads; a tree is never changed once built.
+//
+
+
+import java.util.*;
+
+
+public class BFSTreeCache {
+
+	public RoadGraph graph;
+	public int capacity;
+	// hits and misses count the requests for trees that were found in the
+	// cache and that had to be built.
+	public long hits = 0, misses = 0;
+	// trees maps initial location IDs to their trees, in order of use.
+	LinkedHashMap<Integer, Tree> trees;
+
+	// Tree -- The breadth-first search tree grown from one location. For
+	// each location ID, parent holds the ID of the location it was reached
+	// from, or -1 for the source and for locations that cannot be reached,
+	// and hops holds the number of roads from the source, or -1 for
+	// locations that cannot be reached.
+	public static class Tree {
+		public final int source;
+		final int[] parent;
+		final int[] hops;
+
+		Tree(int source, int[] parent, int[] hops) {
+			this.source = source;
+			this.parent = parent;
+			this.hops = hops;
+		}
+
+		// hops -- Returns the number of roads on the shortest path from the
+		// source to the location with the given ID, or -1 if there is none.
+		public int hops(int id) {
+			return hops[id];
+		}
+
+		// parent -- Returns the ID of the location before the location with
+		// the given ID on the shortest path to it, or -1 if there is none.
+		public int parent(int id) {
+			return parent[id];
+		}
+	}
+
+	public BFSTreeCache(RoadGraph graph, int capacity) {
+		this.graph = graph;
+		this.capacity = capacity;
+		this.trees = new LinkedHashMap<Integer, Tree>(16, 0.75f, true) {
+			protected boolean removeEldestEntry(java.util.Map.Entry<Integer, Tree> eldest) {
+				return size() > BFSTreeCache.this.capacity;
+			}
+		};
+	}
+
+	// tree -- Returns the tree grown from the location with the given ID,
+	// building it if it is not in the cache.
+	public Tree tree(int source) {
+		synchronized (trees) {
+			Tree tree = trees.get(source);
+			if (tree != null) {
+				hits++;
+				return tree;
+			}
+			misses++;
+		}
+		// Builds the tree outside the lock, so other threads are not held
+		// up. Two threads may build the same tree, and the later one is
+		// kept.
+		Tree tree = build(source);
+		synchronized (trees) {
+			trees.put(source, tree);
+		}
+		return tree;
+	}
+
+	// hops -- Returns the number of roads on the shortest path between the
+	// locations with the given IDs, or -1 if there is none.
+	public int hops(int source, int destination) {
+		return tree(source).hops(destination);
+	}
+
+	// path -- Returns the shortest path between the locations with the
+	// given IDs as a chain of Node objects, or null if there is none. Where
+	// several roads join the same two locations, the first is taken, as a
+	// breadth-first search would.
+	public Node path(int source, int destination) {
+		Tree tree = tree(source);
+		if (tree.hops[destination] < 0) {
+			return null;
+		}
+		int[] path = new int[tree.hops[destination] + 1];
+		for (int v = destination, i = path.length - 1; i >= 0; v = tree.parent[v], i--) {
+			path[i] = v;
+		}
+		Node node = new Node(graph.location(source));
+		for (int i = 1; i < path.length; i++) {
+			Node child = new Node(graph.location(path[i]), node);
+			child.depth = i;
+			child.partialPathCost = node.partialPathCost + cost(path[i - 1], path[i]);
+			node = child;
+		}
+		return node;
+	}
+
+	// build -- Returns a new tree grown from the location with the given ID
+	// by a breadth-first search.
+	Tree build(int source) {
+		int n = graph.locationCount();
+		int[] parent = new int[n];
+		int[] hops = new int[n];
+		Arrays.fill(parent, -1);
+		Arrays.fill(hops, -1);
+		// The queue of locations reached but not yet expanded ...
+		int[] queue = new int[n];
+		int head = 0, tail = 0;
+		queue[tail++] = source;
+		hops[source] = 0;
+		while (head < tail) {
+			int u = queue[head++];
+			for (int e = graph.offsets[u]; e < graph.offsets[u + 1]; e++) {
+				int v = graph.targets[e];
+				if (hops[v] < 0) {
+					hops[v] = hops[u] + 1;
+					parent[v] = u;
+					queue[tail++] = v;
+				}
+			}
+		}
+		return new Tree(source, parent, hops);
+	}
+
+	// cost -- Returns the cost of the first road from one location to the
+	// other, given their IDs.
+	double cost(int from, int to) {
+		for (int e = graph.offsets[from]; e < graph.offsets[from + 1]; e++) {
+			if (graph.targets[e] == to) {
+				return graph.costs[e];
+			}
+		}
+		return 0.0;
+	}
+
+}
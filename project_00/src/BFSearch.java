@@ -19,72 +19,356 @@ import java.util.*;
 public class BFSearch {
 
 	public Map graph;
+	// roadGraph, if not null, is a compressed view of the roads of graph,
+	// which is used to expand nodes instead of the Location objects.
+	public RoadGraph roadGraph;
+	// components, if not null, is used to return null at once for
+	// destinations that cannot be reached, without searching.
+	public Components components;
 	public String initialLoc;
 	public String destinationLoc;
 	public int limit, expansionCount = 0;
+	// stats records what the last call to search did.
+	public SearchStats stats = new SearchStats();
 	
 	public Frontier frontier = new Frontier();
-	// explored keeps track of the locations explored.
-	public Set<String> explored = new HashSet<String>();
+	// successors is the cursor used by search to expand each node.
+	Node.Successors successors = new Node.Successors();
+	// explored keeps track of the locations explored, by location ID.
+	public BitSet explored = new BitSet();
+	// tree holds the search tree built by searchTree, which is reused from
+	// one search to the next, and solution is the index in tree of the node
+	// found by the last call to searchTree, or -1 if none was found. open
+	// holds the indices of the nodes in the frontier of that search.
+	public SearchTree tree = new SearchTree();
+	public int solution = -1;
+	int[] open = new int[1024];
+	// forward and backward hold the two halves of the last bidirectional
+	// search, which share a stamp that tells which marks are current.
+	Wave forward, backward;
+	int stamp = 0;
+	
+	// Wave -- One direction of a bidirectional search, growing outward from
+	// one location over a RoadGraph, level by level. The arrays are indexed
+	// by location ID, and a location has been reached by this wave in the
+	// current search only if its mark equals the current stamp, so the
+	// arrays never need clearing. For each location reached, parent is the
+	// location it was reached from and cost is the cost of that road.
+	static class Wave {
+		RoadGraph graph;
+		int[] mark, parent, depth;
+		double[] cost;
+		// The locations of the current level, and those of the next ...
+		int[] level, next;
+		int levelSize, nextSize, levelDepth;
+		
+		Wave(RoadGraph graph) {
+			int n = graph.locationCount();
+			this.graph = graph;
+			this.mark = new int[n];
+			this.parent = new int[n];
+			this.depth = new int[n];
+			this.cost = new double[n];
+			this.level = new int[n];
+			this.next = new int[n];
+		}
+		
+		// start -- Begin a new wave at the given location.
+		void start(int id, int stamp) {
+			mark[id] = stamp;
+			parent[id] = -1;
+			depth[id] = 0;
+			cost[id] = 0.0;
+			level[0] = id;
+			levelSize = 1;
+			levelDepth = 0;
+		}
+		
+		// reached -- Return true if the given location has been reached by
+		// this wave.
+		boolean reached(int id, int stamp) {
+			return (mark[id] == stamp);
+		}
+	}
 	
 	public BFSearch(Map graph, String initialLoc, String destinationLoc, int limit) {
+		this(graph, null, initialLoc, destinationLoc, limit);
+	}
+	
+	public BFSearch(Map graph, RoadGraph roadGraph, String initialLoc, String destinationLoc, int limit) {
 		this.graph = graph;
+		this.roadGraph = roadGraph;
 		this.initialLoc = initialLoc;
 		this.destinationLoc = destinationLoc;
 		// 0-999 produces a depth of 1000.
 		this.limit = limit - 1;
 	}
 	
+	// search -- Searches for a path from initialLoc to destinationLoc,
+	// returning the node reached at destinationLoc, or null if none was
+	// found, and recording what the search did in stats.
 	public Node search(boolean exploredCheck) {
+		stats.start(exploredCheck ? "bfs" : "bfs-nocheck");
+		return (stats.finish(searchNodes(exploredCheck), expansionCount, explored.cardinality()));
+	}
+	
+	// searchNodes -- Performs the search for search, out of Node objects,
+	// counting the nodes generated, and the largest size of the frontier.
+	Node searchNodes(boolean exploredCheck) {
 		// Prepares a new search.
 		newSearch();
 		
 		Node parent = new Node(graph.findLocation(initialLoc));
+		// Nodes are matched to the destination by location ID. An unknown
+		// destination matches no node.
+		Location destination = graph.findLocation(destinationLoc);
+		int destinationId = (destination == null) ? -1 : destination.id;
 		
-		// Returns parent if initialLoc and destinationLoc are the same,
+		// Returns parent if initialLoc and destinationLoc are the same, and
+		// null if components shows that destinationLoc cannot be reached,
 		// else it adds it to the frontier and an entry is created in
 		// explored.
 		if (initialLoc == destinationLoc) {
 			return parent;
 		}
+		if (components != null && !components.mayReach(parent.loc.id, destinationId)) {
+			return null;
+		}
 		frontier.addToBottom(parent);
-		explored.add(parent.loc.name);
+		explored.set(parent.loc.id);
+		stats.generated++;
 		
 		// Checks if the frontier is empty and if the depth is greater than
 		// the limit. Returns parent if a solution is found, else it returns
 		// null.
 		while (!frontier.isEmpty() && parent.depth < limit) {
+			stats.frontier(frontier.size());
 			// Removes the node at the top of the frontier.
 			parent = frontier.removeTop();
 			
 			// Checks to see if the location of parent matches destinationLoc,
-			// else expands parent and increments expasionCount.
-			if (parent.isDestination(destinationLoc)) {
+			// else expands parent and increments expasionCount. The
+			// successors of parent are visited with a cursor, which creates
+			// a child only once it is known to join the frontier.
+			if (parent.isDestination(destinationId)) {
 				return parent;
 			}
-			parent.expand();
+			if (roadGraph == null) {
+				successors.start(parent);
+			} else {
+				successors.start(parent, roadGraph);
+			}
 			expansionCount++;
 			
 			// If false, does not check for reoccurring locations, else
 			// checks for reoccurring locations using the contents in
 			// explored.
-			if (!exploredCheck) {
-				for (Node child : parent.children) {
-					frontier.addToBottom(child);
+			while (successors.next()) {
+				if (exploredCheck) {
+					if (explored.get(successors.locationId())) {
+						continue;
+					}
+					explored.set(successors.locationId());
 				}
-			} else {
-				for (Node child : parent.children) {
-					if (!explored.contains(child.loc.name)) {
-						frontier.addToBottom(child);
-						explored.add(child.loc.name);
+				frontier.addToBottom(successors.child());
+				stats.generated++;
+			}
+		}
+		
+		stats.frontier(frontier.size());
+		return null;
+	}
+	
+	// searchTree -- Performs the same search as search, with the same
+	// result and expansion count, but builds the search tree in tree rather
+	// than out of Node objects, expanding nodes from roadGraph. If no
+	// RoadGraph was given, one is built and kept in roadGraph. The path to
+	// the solution is returned as a chain of Node objects.
+	public Node searchTree(boolean exploredCheck) {
+		// Prepares a new search.
+		newSearch();
+		tree.clear();
+		solution = -1;
+		if (roadGraph == null) {
+			roadGraph = new RoadGraph(graph);
+		}
+		
+		int parent = tree.addRoot(graph.findLocation(initialLoc).id);
+		Location destination = graph.findLocation(destinationLoc);
+		int destinationId = (destination == null) ? -1 : destination.id;
+		
+		// Returns parent if initialLoc and destinationLoc are the same, and
+		// null if components shows that destinationLoc cannot be reached,
+		// else it adds it to the frontier and an entry is created in
+		// explored.
+		if (initialLoc == destinationLoc) {
+			solution = parent;
+			return tree.toNode(solution, roadGraph);
+		}
+		if (components != null && !components.mayReach(tree.location(parent), destinationId)) {
+			return null;
+		}
+		// The frontier is a queue of node indices, running from open[head]
+		// up to open[tail].
+		int head = 0, tail = 0;
+		open[tail++] = parent;
+		explored.set(tree.location(parent));
+		
+		while (head < tail && tree.depth(parent) < limit) {
+			// Removes the node at the top of the frontier.
+			parent = open[head++];
+			
+			if (tree.location(parent) == destinationId) {
+				solution = parent;
+				return tree.toNode(solution, roadGraph);
+			}
+			// The children of parent are the nodes from first to the end
+			// of the tree.
+			int first = tree.expand(parent, roadGraph);
+			expansionCount++;
+			
+			for (int child = first; child < tree.size(); child++) {
+				// Skips children whose locations were explored, when
+				// checking for reoccurring locations.
+				if (exploredCheck) {
+					if (explored.get(tree.location(child))) {
+						continue;
 					}
+					explored.set(tree.location(child));
+				}
+				if (tail == open.length) {
+					open = Arrays.copyOf(open, 2 * tail);
 				}
+				open[tail++] = child;
 			}
 		}
 		
 		return null;
 	}
 	
+	// searchBidirectional -- Searches for the path with the fewest roads
+	// from initialLoc to destinationLoc by growing two breadth-first waves,
+	// one forward from initialLoc over roadGraph and one backward from
+	// destinationLoc over its reverse, always advancing the smaller wave by
+	// a whole level, until they meet. Each wave only needs to reach about
+	// half as far as a single breadth-first search, so far fewer nodes are
+	// expanded on large maps. Repeated states are always checked, and paths
+	// with more roads than the depth limit are not found. If no
+	// RoadGraph was given, one is built and kept in roadGraph. The path is
+	// returned as a chain of Node objects.
+	public Node searchBidirectional() {
+		// Prepares a new search.
+		newSearch();
+		if (roadGraph == null) {
+			roadGraph = new RoadGraph(graph);
+		}
+		if (forward == null || forward.graph != roadGraph) {
+			forward = new Wave(roadGraph);
+			backward = new Wave(roadGraph.reverse());
+			stamp = 0;
+		}
+		stamp++;
+		
+		Location start = graph.findLocation(initialLoc);
+		Location destination = graph.findLocation(destinationLoc);
+		Node root = new Node(start);
+		
+		// Returns root if initialLoc and destinationLoc are the same, and
+		// null if the destination does not exist or components shows that
+		// it cannot be reached.
+		if (initialLoc == destinationLoc) {
+			return root;
+		}
+		if (destination == null) {
+			return null;
+		}
+		if (root.isDestination(destination.id)) {
+			return root;
+		}
+		if (components != null && !components.mayReach(start.id, destination.id)) {
+			return null;
+		}
+		forward.start(start.id, stamp);
+		backward.start(destination.id, stamp);
+		
+		// Advances the smaller wave while a path found by the next level
+		// would be within the limit. meeting is the location joining the
+		// shortest path found so far, if any.
+		int meeting = -1;
+		int meetingLength = Integer.MAX_VALUE;
+		while (forward.levelSize > 0 && backward.levelSize > 0
+				&& forward.levelDepth + backward.levelDepth < limit) {
+			Wave wave = (backward.levelSize < forward.levelSize) ? backward : forward;
+			Wave other = (wave == forward) ? backward : forward;
+			RoadGraph roads = wave.graph;
+			wave.nextSize = 0;
+			for (int i = 0; i < wave.levelSize; i++) {
+				int u = wave.level[i];
+				expansionCount++;
+				for (int e = roads.offsets[u]; e < roads.offsets[u + 1]; e++) {
+					int v = roads.targets[e];
+					if (wave.reached(v, stamp)) {
+						continue;
+					}
+					wave.mark[v] = stamp;
+					wave.parent[v] = u;
+					wave.depth[v] = wave.levelDepth + 1;
+					wave.cost[v] = roads.costs[e];
+					wave.next[wave.nextSize++] = v;
+					// Checks whether the other wave has reached v.
+					if (other.reached(v, stamp) && wave.depth[v] + other.depth[v] < meetingLength) {
+						meeting = v;
+						meetingLength = wave.depth[v] + other.depth[v];
+					}
+				}
+			}
+			int[] swap = wave.level;
+			wave.level = wave.next;
+			wave.next = swap;
+			wave.levelSize = wave.nextSize;
+			wave.levelDepth++;
+			
+			// Once the waves have met, the whole level has been checked
+			// for a shorter meeting, so the path can be returned.
+			if (meeting >= 0) {
+				return join(root, meeting);
+			}
+		}
+		
+		return null;
+	}
+	
+	// join -- Returns the chain of Node objects from the given root, along
+	// the forward wave to the meeting location, and then along the backward
+	// wave to the destination.
+	Node join(Node root, int meeting) {
+		// Collects the forward half, from the meeting location back to the
+		// initial location.
+		int[] half = new int[forward.depth[meeting]];
+		for (int v = meeting, i = half.length - 1; i >= 0; v = forward.parent[v], i--) {
+			half[i] = v;
+		}
+		Node node = root;
+		for (int v : half) {
+			node = step(node, v, forward.cost[v]);
+		}
+		// The backward wave records, for each location, the next location
+		// toward the destination and the cost of the road leading there.
+		for (int v = meeting; backward.parent[v] >= 0; v = backward.parent[v]) {
+			node = step(node, backward.parent[v], backward.cost[v]);
+		}
+		return node;
+	}
+	
+	// step -- Returns a child of the given node at the given location,
+	// reached by a road with the given cost.
+	Node step(Node parent, int id, double cost) {
+		Node child = new Node(roadGraph.location(id), parent);
+		child.depth = parent.depth + 1;
+		child.partialPathCost = parent.partialPathCost + cost;
+		return child;
+	}
+	
 	public void newSearch() {
 		// Empties the frontier if not empty.
 		while (!frontier.isEmpty()) {
@@ -19,72 +19,308 @@ import java.util.*;
 public class DFSearch {
 
 	public Map graph;
+	// roadGraph, if not null, is a compressed view of the roads of graph,
+	// which is used to expand nodes instead of the Location objects.
+	public RoadGraph roadGraph;
+	// components, if not null, is used to return null at once for
+	// destinations that cannot be reached, without searching.
+	public Components components;
 	public String initialLoc;
 	public String destinationLoc;
 	public int limit, expansionCount = 0;
+	// stats records what the last call to search did.
+	public SearchStats stats = new SearchStats();
 	
 	public Frontier frontier = new Frontier();
-	// explored keeps track of the locations explored.
-	public Set<String> explored = new HashSet<String>();
+	// successors is the cursor used by search to expand each node.
+	Node.Successors successors = new Node.Successors();
+	// explored keeps track of the locations explored, by location ID.
+	public BitSet explored = new BitSet();
+	// tree holds the search tree built by searchTree, which is reused from
+	// one search to the next, and solution is the index in tree of the node
+	// found by the last call to searchTree, or -1 if none was found. open
+	// holds the indices of the nodes in the frontier of that search.
+	public SearchTree tree = new SearchTree();
+	public int solution = -1;
+	int[] open = new int[1024];
+	// pathLocation, pathRoad and pathCost hold the current path of an
+	// iterative-deepening search, one entry per depth: the location ID, the
+	// position in roadGraph of the next road to try from it, and the cost of
+	// the road that led to it.
+	int[] pathLocation = new int[16];
+	int[] pathRoad = new int[16];
+	double[] pathCost = new double[16];
 	
 	public DFSearch(Map graph, String initialLoc, String destinationLoc, int limit) {
+		this(graph, null, initialLoc, destinationLoc, limit);
+	}
+	
+	public DFSearch(Map graph, RoadGraph roadGraph, String initialLoc, String destinationLoc, int limit) {
 		this.graph = graph;
+		this.roadGraph = roadGraph;
 		this.initialLoc = initialLoc;
 		this.destinationLoc = destinationLoc;
 		// 0-999 produces a depth of 1000.
 		this.limit = limit - 1;
 	}
 	
+	// search -- Searches for a path from initialLoc to destinationLoc,
+	// returning the node reached at destinationLoc, or null if none was
+	// found, and recording what the search did in stats.
 	public Node search(boolean exploredCheck) {
+		stats.start(exploredCheck ? "dfs" : "dfs-nocheck");
+		return (stats.finish(searchNodes(exploredCheck), expansionCount, explored.cardinality()));
+	}
+	
+	// searchNodes -- Performs the search for search, out of Node objects,
+	// counting the nodes generated, and the largest size of the frontier.
+	Node searchNodes(boolean exploredCheck) {
 		// Prepares a new search.
 		newSearch();
 		
 		Node parent = new Node(graph.findLocation(initialLoc));
+		// Nodes are matched to the destination by location ID. An unknown
+		// destination matches no node.
+		Location destination = graph.findLocation(destinationLoc);
+		int destinationId = (destination == null) ? -1 : destination.id;
 		
-		// Returns parent if initialLoc and destinationLoc are the same,
+		// Returns parent if initialLoc and destinationLoc are the same, and
+		// null if components shows that destinationLoc cannot be reached,
 		// else it adds it to the frontier and an entry is created in
 		// explored.
 		if (initialLoc == destinationLoc) {
 			return parent;
 		}
+		if (components != null && !components.mayReach(parent.loc.id, destinationId)) {
+			return null;
+		}
 		frontier.addToTop(parent);
-		explored.add(parent.loc.name);
+		explored.set(parent.loc.id);
+		stats.generated++;
 		
 		// Checks if the frontier is empty and if the depth is greater than
 		// the limit. Returns parent if a solution is found, else it returns
 		// null.
 		while (!frontier.isEmpty() && parent.depth < limit) {
+			stats.frontier(frontier.size());
 			// Removes the node at the top of the frontier.
 			parent = frontier.removeTop();
 			
 			// Checks to see if the location of parent matches destinationLoc,
-			// else expands parent and increments expasionCount.
-			if (parent.isDestination(destinationLoc)) {
+			// else expands parent and increments expasionCount. The
+			// successors of parent are visited with a cursor, which creates
+			// a child only once it is known to join the frontier.
+			if (parent.isDestination(destinationId)) {
 				return parent;
 			}
-			parent.expand();
+			if (roadGraph == null) {
+				successors.start(parent);
+			} else {
+				successors.start(parent, roadGraph);
+			}
 			expansionCount++;
 			
 			// If false, does not check for reoccurring locations, else
 			// checks for reoccurring locations using the contents in
 			// explored.
-			if (!exploredCheck) {
-				for (Node child : parent.children) {
-					frontier.addToTop(child);
+			while (successors.next()) {
+				if (exploredCheck) {
+					if (explored.get(successors.locationId())) {
+						continue;
+					}
+					explored.set(successors.locationId());
 				}
-			} else {
-				for (Node child : parent.children) {
-					if (!explored.contains(child.loc.name)) {
-						frontier.addToTop(child);
-						explored.add(child.loc.name);
+				frontier.addToTop(successors.child());
+				stats.generated++;
+			}
+		}
+		
+		stats.frontier(frontier.size());
+		return null;
+	}
+	
+	// searchTree -- Performs the same search as search, with the same
+	// result and expansion count, but builds the search tree in tree rather
+	// than out of Node objects, expanding nodes from roadGraph. If no
+	// RoadGraph was given, one is built and kept in roadGraph. The path to
+	// the solution is returned as a chain of Node objects.
+	public Node searchTree(boolean exploredCheck) {
+		// Prepares a new search.
+		newSearch();
+		tree.clear();
+		solution = -1;
+		if (roadGraph == null) {
+			roadGraph = new RoadGraph(graph);
+		}
+		
+		int parent = tree.addRoot(graph.findLocation(initialLoc).id);
+		Location destination = graph.findLocation(destinationLoc);
+		int destinationId = (destination == null) ? -1 : destination.id;
+		
+		// Returns parent if initialLoc and destinationLoc are the same, and
+		// null if components shows that destinationLoc cannot be reached,
+		// else it adds it to the frontier and an entry is created in
+		// explored.
+		if (initialLoc == destinationLoc) {
+			solution = parent;
+			return tree.toNode(solution, roadGraph);
+		}
+		if (components != null && !components.mayReach(tree.location(parent), destinationId)) {
+			return null;
+		}
+		// The frontier is a stack of node indices, with open[top - 1] on
+		// top.
+		int top = 0;
+		open[top++] = parent;
+		explored.set(tree.location(parent));
+		
+		while (top > 0 && tree.depth(parent) < limit) {
+			// Removes the node at the top of the frontier.
+			parent = open[--top];
+			
+			if (tree.location(parent) == destinationId) {
+				solution = parent;
+				return tree.toNode(solution, roadGraph);
+			}
+			// The children of parent are the nodes from first to the end
+			// of the tree.
+			int first = tree.expand(parent, roadGraph);
+			expansionCount++;
+			
+			for (int child = first; child < tree.size(); child++) {
+				// Skips children whose locations were explored, when
+				// checking for reoccurring locations.
+				if (exploredCheck) {
+					if (explored.get(tree.location(child))) {
+						continue;
 					}
+					explored.set(tree.location(child));
 				}
+				if (top == open.length) {
+					open = Arrays.copyOf(open, 2 * top);
+				}
+				open[top++] = child;
 			}
 		}
 		
 		return null;
 	}
 	
+	// searchIterativeDeepening -- Searches for the path with the fewest
+	// roads from initialLoc to destinationLoc with a series of depth-first
+	// searches, each allowed one road more than the last, so the shallowest
+	// solution is found first. Each depth-first search keeps only the
+	// current path, in arrays indexed by depth, and reads the roads out of
+	// each location from roadGraph, so no Node objects or children lists are
+	// made and memory grows only with the depth. Instead of remembering the
+	// explored locations, a location is skipped if it is already on the
+	// current path. The series stops at the depth limit, or as soon as a
+	// depth-first search finishes without being cut short by its bound. If
+	// no RoadGraph was given, one is built and kept in roadGraph. The path
+	// is returned as a chain of Node objects.
+	public Node searchIterativeDeepening() {
+		// Prepares a new search.
+		newSearch();
+		if (roadGraph == null) {
+			roadGraph = new RoadGraph(graph);
+		}
+		
+		Location start = graph.findLocation(initialLoc);
+		Location destination = graph.findLocation(destinationLoc);
+		
+		// Returns the root if initialLoc and destinationLoc are the same,
+		// and null if the destination does not exist or components shows
+		// that it cannot be reached.
+		if (initialLoc == destinationLoc || (destination != null && start.id == destination.id)) {
+			return new Node(start);
+		}
+		if (destination == null) {
+			return null;
+		}
+		if (components != null && !components.mayReach(start.id, destination.id)) {
+			return null;
+		}
+		
+		for (int bound = 1; bound <= limit; bound++) {
+			if (pathLocation.length <= bound) {
+				int capacity = Math.max(2 * pathLocation.length, bound + 1);
+				pathLocation = Arrays.copyOf(pathLocation, capacity);
+				pathRoad = Arrays.copyOf(pathRoad, capacity);
+				pathCost = Arrays.copyOf(pathCost, capacity);
+			}
+			// cutoff records whether a path was cut short by the bound, in
+			// which case a deeper search could still succeed.
+			boolean cutoff = false;
+			int depth = 0;
+			pathLocation[0] = start.id;
+			pathRoad[0] = roadGraph.offsets[start.id];
+			pathCost[0] = 0.0;
+			expansionCount++;
+			
+			while (depth >= 0) {
+				int u = pathLocation[depth];
+				// Backs up once every road out of u has been tried.
+				if (pathRoad[depth] == roadGraph.offsets[u + 1]) {
+					depth--;
+					continue;
+				}
+				int e = pathRoad[depth]++;
+				int v = roadGraph.targets[e];
+				if (onPath(v, depth)) {
+					continue;
+				}
+				depth++;
+				pathLocation[depth] = v;
+				pathCost[depth] = roadGraph.costs[e];
+				if (v == destination.id) {
+					return pathNode(depth);
+				}
+				// Nodes at the bound are not expanded.
+				if (depth == bound) {
+					if (roadGraph.offsets[v] < roadGraph.offsets[v + 1]) {
+						cutoff = true;
+					}
+					depth--;
+					continue;
+				}
+				pathRoad[depth] = roadGraph.offsets[v];
+				expansionCount++;
+			}
+			
+			if (!cutoff) {
+				return null;
+			}
+		}
+		
+		return null;
+	}
+	
+	// onPath -- Returns true if the given location ID is on the current path
+	// of an iterative-deepening search, at or above the given depth.
+	boolean onPath(int id, int depth) {
+		for (int d = depth; d >= 0; d--) {
+			if (pathLocation[d] == id) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	// pathNode -- Returns the chain of Node objects for the current path of
+	// an iterative-deepening search, down to the given depth.
+	Node pathNode(int depth) {
+		Node node = null;
+		for (int d = 0; d <= depth; d++) {
+			Node child = new Node(roadGraph.location(pathLocation[d]), node);
+			if (node != null) {
+				child.depth = node.depth + 1;
+				child.partialPathCost = node.partialPathCost + pathCost[d];
+			}
+			node = child;
+		}
+		return node;
+	}
+	
 	public void newSearch() {
 		// Empties the frontier if not empty.
 		while (!frontier.isEmpty()) {
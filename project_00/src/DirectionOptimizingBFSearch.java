@@ -0,0 +1,190 @@
+//
+// DirectionOptimizingBFSearch
+//
+// This class implements a breadth-first search over a RoadGraph that
+// chooses, for each level, between two ways of finding the next level, in
+// the style of the direction-optimizing search of Beamer, Asanovic, and
+// Patterson.  A "top-down" step follows every road out of every location
+// in the current level, as an ordinary breadth-first search does.  A
+// "bottom-up" step instead considers every location that has not yet been
+// reached, and follows the roads into it, from the reverse of the graph,
+// only until one is found that comes from the current level.  When the
+// current level is large, most of the roads out of it lead to locations
+// that have already been reached, and most unreached locations have a
+// road from the current level, so the bottom-up step inspects far fewer
+// roads.  The locations to consider are kept in a list, from which each
+// bottom-up step drops those that have been reached, so it need not scan
+// the whole map.  Before each step, the cost of each is estimated, and the
+// cheaper step is taken.  A top-down step inspects every road out of the
+// current level.  A bottom-up step scans every location in the list, and
+// follows roads into those still unreached.  For these, the roads out of
+// the current level are taken to be spread evenly over the map, so that
+// each road into an unreached location comes from the level with the same
+// probability, and each unreached location is taken to have the average
+// number of roads into it; the expected number of roads inspected before
+// finding one from the level, or running out, then follows.  The number of
+// roads inspected is counted, for comparison with the number an ordinary
+// breadth-first search would inspect, as is the number of locations
+// scanned by bottom-up steps.
+//
+
+
+import java.util.*;
+
+
+public class DirectionOptimizingBFSearch {
+	public RoadGraph graph;
+	public RoadGraph reverse;
+	// roadInspections counts the roads followed by the last search,
+	// locationScans counts the locations its bottom-up steps scanned, and
+	// bottomUpLevels counts the levels found by bottom-up steps.
+	public long roadInspections = 0;
+	public long locationScans = 0;
+	public int bottomUpLevels = 0;
+	// distance holds the number of roads from the source to each location,
+	// or -1 for locations that have not been reached.
+	int[] distance;
+	// level and next hold the location IDs of the current and next levels.
+	int[] level, next;
+	// inLevel holds one bit per location ID, set for the locations of the
+	// current level during a bottom-up step.
+	long[] inLevel;
+	// unreached holds, in order of ID, every location not yet reached, and
+	// those reached by top-down steps since the last bottom-up step, and
+	// unreachedListSize is their number.
+	int[] unreached;
+	int unreachedListSize;
+
+	// Constructor with the RoadGraph to be searched specified ...
+	public DirectionOptimizingBFSearch(RoadGraph graph) {
+		int n = graph.locationCount();
+		this.graph = graph;
+		this.reverse = graph.reverse();
+		this.distance = new int[n];
+		this.level = new int[n];
+		this.next = new int[n];
+		this.inLevel = new long[(n + 63) >>> 6];
+		this.unreached = new int[n];
+	}
+
+	// hopDistances -- Return an array giving, for each location ID, the
+	// number of roads on the shortest path from the location with the given
+	// ID to that location, or -1 if it cannot be reached.  The array is
+	// shared with later searches, so it should be copied if it is to be
+	// kept.
+	public int[] hopDistances(int source) {
+		Arrays.fill(distance, -1);
+		roadInspections = 0;
+		locationScans = 0;
+		bottomUpLevels = 0;
+		for (int id = 0; id < distance.length; id++) {
+			unreached[id] = id;
+		}
+		unreachedListSize = distance.length;
+
+		distance[source] = 0;
+		level[0] = source;
+		int levelSize = 1;
+		int depth = 0;
+		// unreachedCount is the number of locations that have not been
+		// reached, and unreachedRoads is the number of roads into them.
+		int unreachedCount = distance.length - 1;
+		long unreachedRoads = reverse.roadCount() - inDegree(source);
+		while (levelSize > 0) {
+			long levelRoads = 0;
+			for (int i = 0; i < levelSize; i++) {
+				levelRoads += graph.offsets[level[i] + 1] - graph.offsets[level[i]];
+			}
+			depth++;
+			int nextSize;
+			if (levelRoads > unreachedListSize + bottomUpCost(levelRoads, unreachedCount, unreachedRoads)) {
+				nextSize = bottomUpStep(levelSize, depth);
+				bottomUpLevels++;
+			} else {
+				nextSize = topDownStep(levelSize, depth);
+			}
+			unreachedCount -= nextSize;
+			for (int i = 0; i < nextSize; i++) {
+				unreachedRoads -= inDegree(next[i]);
+			}
+			int[] swap = level;
+			level = next;
+			next = swap;
+			levelSize = nextSize;
+		}
+		return distance;
+	}
+
+	// bottomUpCost -- Return the expected number of roads a bottom-up step
+	// would inspect, given the number of roads out of the current level and
+	// the number of unreached locations and roads into them.
+	double bottomUpCost(long levelRoads, int unreachedCount, long unreachedRoads) {
+		if (unreachedCount == 0) {
+			return 0.0;
+		}
+		double p = (double) levelRoads / graph.roadCount();
+		double k = (double) unreachedRoads / unreachedCount;
+		return unreachedCount * (1.0 - Math.pow(1.0 - p, k)) / p;
+	}
+
+	// topDownStep -- Fill in next with the unreached locations at the end
+	// of roads out of the current level, and return their number.
+	int topDownStep(int levelSize, int depth) {
+		int nextSize = 0;
+		for (int i = 0; i < levelSize; i++) {
+			int u = level[i];
+			for (int e = graph.offsets[u]; e < graph.offsets[u + 1]; e++) {
+				roadInspections++;
+				int v = graph.targets[e];
+				if (distance[v] < 0) {
+					distance[v] = depth;
+					next[nextSize++] = v;
+				}
+			}
+		}
+		return nextSize;
+	}
+
+	// bottomUpStep -- Fill in next with the unreached locations that have a
+	// road into them from the current level, and return their number.  The
+	// list of unreached locations is scanned, and left holding only those
+	// that are still unreached.
+	int bottomUpStep(int levelSize, int depth) {
+		for (int i = 0; i < levelSize; i++) {
+			inLevel[level[i] >>> 6] |= 1L << (level[i] & 63);
+		}
+		int nextSize = 0;
+		int kept = 0;
+		locationScans += unreachedListSize;
+		for (int j = 0; j < unreachedListSize; j++) {
+			int v = unreached[j];
+			if (distance[v] >= 0) {
+				continue;
+			}
+			for (int e = reverse.offsets[v]; e < reverse.offsets[v + 1]; e++) {
+				roadInspections++;
+				int u = reverse.targets[e];
+				if ((inLevel[u >>> 6] & (1L << (u & 63))) != 0) {
+					distance[v] = depth;
+					next[nextSize++] = v;
+					break;
+				}
+			}
+			if (distance[v] < 0) {
+				unreached[kept++] = v;
+			}
+		}
+		unreachedListSize = kept;
+		for (int i = 0; i < levelSize; i++) {
+			inLevel[level[i] >>> 6] = 0L;
+		}
+		return nextSize;
+	}
+
+	// inDegree -- Return the number of roads into the location with the
+	// given ID.
+	int inDegree(int id) {
+		return (reverse.offsets[id + 1] - reverse.offsets[id]);
+	}
+
+}
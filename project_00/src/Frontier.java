@@ -11,7 +11,13 @@
 // insertion methods are overloaded to accept either individual Node
 // objects or lists of multiple Node objects.  This class is intended to
 // to be used to implement the frontier (i.e., the "fringe" or "open list")
-// of nodes in a search tree.
+// of nodes in a search tree.  The nodes are kept in a circular array,
+// which is doubled in size when it fills, so that adding and removing
+// nodes at either end takes constant time and allocates nothing once the
+// array is large enough.  The locations of the nodes in the frontier are
+// counted in an array indexed by location ID, so that "contains" does no
+// hashing of names, and remains exact when several nodes in the frontier
+// share a location.
 //
 // David Noelle -- Created Sun Feb 11 18:39:40 PST 2007
 //                 Modified Wed Sep 15 00:09:35 PDT 2010
@@ -25,31 +31,47 @@ import java.util.*;
 
 
 public class Frontier {
-    List<Node> fringe;
-    Set<String> fringeStateNames;
+    // fringe holds the nodes of the frontier, from the top at position
+    // "head" onward, wrapping around; its length is a power of two ...
+    Node[] fringe;
+    int head;
+    int size;
+    // fringeStateCounts holds, for each location ID, the number of nodes
+    // in the frontier with that location as their state ...
+    int[] fringeStateCounts;
 
     // Default constructor ...
 	public Frontier() {
-		fringe = new LinkedList<Node>();
-		fringeStateNames = new HashSet<String>();
+		fringe = new Node[16];
+		head = 0;
+		size = 0;
+		fringeStateCounts = new int[16];
 	}
 
     // isEmpty -- Return true if and only if there are currently no nodes in 
     // the frontier.
 	public boolean isEmpty() {
-		return (fringe.isEmpty());
+		return (size == 0);
+	}
+
+    // size -- Return the number of nodes in the frontier.
+	public int size() {
+		return (size);
 	}
 
     // removeTop -- Return the Node object at the top of the frontier
     // list.  Also, remove this node from the frontier.  Return null if the
     // frontier is empty.
 	public Node removeTop() {
-		if (fringe.isEmpty()) {
+		if (size == 0) {
 			return (null);
 		} else {
-			Node top = fringe.get(0);
-			fringe.remove(0);
-			fringeStateNames.remove(top.loc.name);
+			Node top = fringe[head];
+			// Drop the reference, so that the node can be collected ...
+			fringe[head] = null;
+			head = (head + 1) & (fringe.length - 1);
+			size--;
+			fringeStateCounts[top.loc.id]--;
 			return (top);
 		}
 	}
@@ -57,8 +79,12 @@ public class Frontier {
     // addToTop -- Add the given Node object to the top of the frontier
     // list.
 	public void addToTop(Node leaf) {
-		fringe.add(0, leaf);
-		fringeStateNames.add(leaf.loc.name);
+		if (size == fringe.length)
+			grow();
+		head = (head - 1) & (fringe.length - 1);
+		fringe[head] = leaf;
+		size++;
+		count(leaf);
 	}
 
     // addToTop -- Add the given list of Node objects to the top of the 
@@ -72,8 +98,11 @@ public class Frontier {
     // addToBottom -- Add the given Node object to the bottom of the 
     // frontier list.
 	public void addToBottom(Node leaf) {
-		fringe.add(leaf);
-		fringeStateNames.add(leaf.loc.name);
+		if (size == fringe.length)
+			grow();
+		fringe[(head + size) & (fringe.length - 1)] = leaf;
+		size++;
+		count(leaf);
 	}
 
     // addToBottom -- Add the given list of Node objects to the bottom of
@@ -84,23 +113,54 @@ public class Frontier {
 		}
 	}
 
+    // grow -- Double the length of the circular array of nodes, moving the
+    // nodes so that the top of the frontier is at the start.
+	void grow() {
+		Node[] larger = new Node[2 * fringe.length];
+		for (int i = 0; i < size; i++) {
+			larger[i] = fringe[(head + i) & (fringe.length - 1)];
+		}
+		fringe = larger;
+		head = 0;
+	}
+
+    // count -- Count the location of the given Node object, which has just
+    // been added to the frontier, growing the array of counts to cover its
+    // location ID if necessary.
+	void count(Node leaf) {
+		int id = leaf.loc.id;
+		if (id >= fringeStateCounts.length) {
+			fringeStateCounts = Arrays.copyOf(fringeStateCounts, Math.max(id + 1, 2 * fringeStateCounts.length));
+		}
+		fringeStateCounts[id]++;
+	}
+
     // contains -- Return true if and only if the frontier contains a
-    // Node with the given Location name.
-	public boolean contains(String name) {
+    // Node with the given location ID.  A negative ID, such as that of an
+    // unknown destination, is never in the frontier.
+	public boolean contains(int id) {
 		// This is an efficient way to check the frontier for a node
-		// with a given state, by using a HashSet.
-		if (fringeStateNames.contains(name)) {
-			return (true);
-		} else {
-			// The location was not found in the fringe ...
-			return (false);
+		// with a given state, by indexing an array.
+		return (id >= 0 && id < fringeStateCounts.length && fringeStateCounts[id] > 0);
+	}
+
+    // contains -- Return true if and only if the frontier contains a
+    // Node with the given Location name.  Names are only compared here,
+    // so this takes time proportional to the size of the frontier.
+	public boolean contains(String name) {
+		for (int i = 0; i < size; i++) {
+			Node leaf = fringe[(head + i) & (fringe.length - 1)];
+			if (leaf.loc.name.equals(name))
+				return (true);
 		}
+		// The location was not found in the fringe ...
+		return (false);
 	}
 
     // contains -- Return true if and only if the frontier contains a
     // Node with the given Location object as its state.
 	public boolean contains(Location loc) {
-		return (contains(loc.name));
+		return (contains(loc.id));
 	}
 
     // contains -- Return true if and only if the frontier contains an
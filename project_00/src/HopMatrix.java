@@ -0,0 +1,289 @@
+//
+// HopMatrix
+//
+// This class answers queries for the path with the fewest roads from one
+// location to another in constant time, for maps small enough that the
+// answers for every pair of locations can be stored.  A breadth-first
+// search is run over a RoadGraph from every location, with the sources
+// divided among the tasks of a fork-join pool, and two matrices of 16-bit
+// entries are filled in, each with one row per source and one column per
+// destination.  The first holds the number of roads on the shortest path,
+// and the second holds the first road taken on it, as a position among
+// the roads leading out of the source, so that a location ID, which may
+// not fit in 16 bits, need not be stored.  Following the first roads from
+// one location to the next gives the whole path.  Where several shortest
+// paths exist, the one found by a breadth-first search, taking the roads
+// of each location in order, is kept.  The matrices take four bytes per
+// pair of locations, and may be held on the heap, or in a file mapped
+// into memory, which is not limited by the size of the heap and can be
+// opened again later without searching.  A matrix is never changed once
+// built, so it may be shared by several threads.
+//
+
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+
+public class HopMatrix {
+	// The largest number of locations, and of roads leading out of one
+	// location, that fit in the entries, which reserve their largest value
+	// to mark pairs that cannot be reached ...
+	public static final int MAX_LOCATIONS = 0xFFFF;
+	static final char NONE = 0xFFFF;
+	// Tasks are given no fewer than this many sources ...
+	static final int GRAIN = 16;
+
+	public RoadGraph graph;
+	Store store;
+
+	// Store -- The two matrices, indexed by source and destination IDs.
+	static abstract class Store {
+		abstract char hops(int from, int to);
+		abstract char road(int from, int to);
+		abstract void setRow(int from, char[] hops, char[] roads);
+	}
+
+	// HeapStore -- A Store holding one pair of arrays per source.
+	static class HeapStore extends Store {
+		final char[][] hops, roads;
+
+		HeapStore(int n) {
+			hops = new char[n][];
+			roads = new char[n][];
+		}
+
+		char hops(int from, int to) {
+			return hops[from][to];
+		}
+
+		char road(int from, int to) {
+			return roads[from][to];
+		}
+
+		void setRow(int from, char[] hops, char[] roads) {
+			this.hops[from] = hops.clone();
+			this.roads[from] = roads.clone();
+		}
+	}
+
+	// MappedStore -- A Store kept in a file, in which the row of each
+	// source holds its hop counts followed by its first roads.  Since a
+	// single mapping cannot exceed two gigabytes, the file is mapped in
+	// segments of whole rows.
+	static class MappedStore extends Store {
+		final int n, rowsPerSegment;
+		final MappedByteBuffer[] segments;
+
+		MappedStore(File file, int n, boolean create) throws IOException {
+			this.n = n;
+			long rowBytes = 4L * n;
+			this.rowsPerSegment = (int) Math.max(1, Integer.MAX_VALUE / rowBytes);
+			this.segments = new MappedByteBuffer[(n + rowsPerSegment - 1) / rowsPerSegment];
+			try (RandomAccessFile raf = new RandomAccessFile(file, create ? "rw" : "r")) {
+				if (create) {
+					raf.setLength(rowBytes * n);
+				} else if (raf.length() != rowBytes * n) {
+					throw new IOException("Matrix file " + file + " does not match the map.");
+				}
+				FileChannel channel = raf.getChannel();
+				for (int s = 0; s < segments.length; s++) {
+					int rows = Math.min(rowsPerSegment, n - s * rowsPerSegment);
+					segments[s] = channel.map(create ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY,
+							s * rowsPerSegment * rowBytes, rows * rowBytes);
+				}
+			}
+		}
+
+		// position -- Returns the position in its segment of the row of
+		// the given source.
+		int position(int from) {
+			return (from % rowsPerSegment) * 4 * n;
+		}
+
+		char hops(int from, int to) {
+			return segments[from / rowsPerSegment].getChar(position(from) + 2 * to);
+		}
+
+		char road(int from, int to) {
+			return segments[from / rowsPerSegment].getChar(position(from) + 2 * (n + to));
+		}
+
+		void setRow(int from, char[] hops, char[] roads) {
+			// Writes through a view of the segment, whose position is its
+			// own, so that tasks writing other rows are not disturbed ...
+			CharBuffer row = segments[from / rowsPerSegment].duplicate().position(position(from)).asCharBuffer();
+			row.put(hops);
+			row.put(roads);
+		}
+	}
+
+	// Constructor with the RoadGraph to be searched specified, keeping the
+	// matrices on the heap and searching with the common fork-join pool ...
+	public HopMatrix(RoadGraph graph) {
+		this(graph, ForkJoinPool.commonPool());
+	}
+
+	// Constructor with the RoadGraph to be searched and the fork-join pool
+	// to search it with specified, keeping the matrices on the heap ...
+	public HopMatrix(RoadGraph graph, ForkJoinPool pool) {
+		this.graph = graph;
+		check(graph);
+		this.store = new HeapStore(graph.locationCount());
+		build(pool);
+	}
+
+	// Constructor with the RoadGraph to be searched and the file to keep the
+	// matrices in, which is replaced, specified, searching with the common
+	// fork-join pool ...
+	public HopMatrix(RoadGraph graph, File file) throws IOException {
+		this(graph, file, ForkJoinPool.commonPool());
+	}
+
+	// Constructor with the RoadGraph to be searched, the file to keep the
+	// matrices in, which is replaced, and the fork-join pool to search
+	// with specified ...
+	public HopMatrix(RoadGraph graph, File file, ForkJoinPool pool) throws IOException {
+		this.graph = graph;
+		check(graph);
+		this.store = new MappedStore(file, graph.locationCount(), true);
+		build(pool);
+		for (MappedByteBuffer segment : ((MappedStore) store).segments) {
+			segment.force();
+		}
+	}
+
+	// Constructor with the RoadGraph and an existing Store specified ...
+	HopMatrix(RoadGraph graph, Store store) {
+		this.graph = graph;
+		this.store = store;
+	}
+
+	// open -- Returns the matrix kept in the given file by an earlier
+	// search of the given RoadGraph, without searching again.  The file
+	// must have been written for the same map.
+	public static HopMatrix open(RoadGraph graph, File file) throws IOException {
+		check(graph);
+		return new HopMatrix(graph, new MappedStore(file, graph.locationCount(), false));
+	}
+
+	// check -- Throws an IllegalArgumentException if the given RoadGraph is
+	// too large for the entries of a matrix.
+	static void check(RoadGraph graph) {
+		int n = graph.locationCount();
+		if (n > MAX_LOCATIONS) {
+			throw new IllegalArgumentException("A hop matrix is limited to " + MAX_LOCATIONS + " locations, not " + n + ".");
+		}
+		for (int id = 0; id < n; id++) {
+			if (graph.offsets[id + 1] - graph.offsets[id] > MAX_LOCATIONS) {
+				throw new IllegalArgumentException("Too many roads lead out of " + graph.location(id).name + " for a hop matrix.");
+			}
+		}
+	}
+
+	// hops -- Returns the number of roads on the shortest path between the
+	// locations with the given IDs, or -1 if there is none.
+	public int hops(int from, int to) {
+		char hops = store.hops(from, to);
+		return (hops == NONE) ? -1 : hops;
+	}
+
+	// firstRoad -- Returns the position in the RoadGraph of the first road
+	// on the shortest path between the locations with the given IDs, or -1
+	// if there is none, or if they are the same location.
+	public int firstRoad(int from, int to) {
+		char road = store.road(from, to);
+		return (road == NONE) ? -1 : graph.offsets[from] + road;
+	}
+
+	// nextHop -- Returns the ID of the location after the one with the
+	// first given ID on the shortest path to the one with the second, or
+	// -1 if there is none, or if they are the same location.
+	public int nextHop(int from, int to) {
+		int road = firstRoad(from, to);
+		return (road < 0) ? -1 : graph.targets[road];
+	}
+
+	// path -- Returns the shortest path between the locations with the
+	// given IDs as a chain of Node objects, or null if there is none.
+	public Node path(int from, int to) {
+		if (hops(from, to) < 0) {
+			return null;
+		}
+		Node node = new Node(graph.location(from));
+		for (int u = from; u != to;) {
+			int road = firstRoad(u, to);
+			u = graph.targets[road];
+			Node child = new Node(graph.location(u), node);
+			child.depth = node.depth + 1;
+			child.partialPathCost = node.partialPathCost + graph.costs[road];
+			node = child;
+		}
+		return node;
+	}
+
+	// build -- Fill in the matrices, searching from every location.
+	void build(ForkJoinPool pool) {
+		int n = graph.locationCount();
+		if (n > 0) {
+			pool.invoke(new Sources(0, n));
+		}
+	}
+
+	// Sources -- The task searching from the locations with IDs from
+	// "first" up to, but not including, "end".  Tasks covering more than a
+	// few sources split in half; others search from each of their sources
+	// in turn, reusing their arrays.
+	class Sources extends RecursiveAction {
+		static final long serialVersionUID = 1;
+		int first, end;
+
+		Sources(int first, int end) {
+			this.first = first;
+			this.end = end;
+		}
+
+		protected void compute() {
+			if (end - first > GRAIN) {
+				int middle = (first + end) >>> 1;
+				invokeAll(new Sources(first, middle), new Sources(middle, end));
+				return;
+			}
+			int n = graph.locationCount();
+			char[] hops = new char[n];
+			char[] roads = new char[n];
+			int[] queue = new int[n];
+			for (int source = first; source < end; source++) {
+				search(source, hops, roads, queue);
+				store.setRow(source, hops, roads);
+			}
+		}
+
+		// search -- Fill in the rows of the given source by a breadth-first
+		// search.  The first road to each location is that of the location
+		// it was reached from, except for the neighbors of the source,
+		// which are reached by the first roads themselves.
+		void search(int source, char[] hops, char[] roads, int[] queue) {
+			Arrays.fill(hops, NONE);
+			Arrays.fill(roads, NONE);
+			int head = 0, tail = 0;
+			queue[tail++] = source;
+			hops[source] = 0;
+			while (head < tail) {
+				int u = queue[head++];
+				for (int e = graph.offsets[u]; e < graph.offsets[u + 1]; e++) {
+					int v = graph.targets[e];
+					if (hops[v] == NONE) {
+						hops[v] = (char) (hops[u] + 1);
+						roads[v] = (u == source) ? (char) (e - graph.offsets[source]) : roads[u];
+						queue[tail++] = v;
+					}
+				}
+			}
+		}
+	}
+
+}
@@ -22,6 +22,9 @@ public class Location {
     public double longitude = 0.0;
     public double latitude = 0.0;
     public List<Road> roads;
+    // id is a dense integer naming this location within its map, assigned
+    // when the map records the location, or -1 until then ...
+    public int id = -1;
 
     // Default constructor ...
 	public Location() {
@@ -42,8 +45,12 @@ public class Location {
 	}
 
     // equals -- Return true if and only if this location has the same name
-    // as the argument location.
+    // as the argument location. Two locations recorded in a map are compared
+    // by their IDs instead, which is equivalent, since the map resolves each
+    // name to the first location recorded with it.
 	public boolean equals(Location loc) {
+		if (this.id >= 0 && loc.id >= 0)
+			return (loc.id == this.id);
 		return (loc.name.equals(this.name));
 	}
 
@@ -85,6 +92,39 @@ public class Location {
 		}
 	}
 
+    // read -- Read a location description from the next line of the given
+    // MapFileReader into this object, accepting exactly what the version of
+    // this method that takes a BufferedReader accepts, but without building
+    // a Scanner for the line.  Return true if at least a name was read and
+    // false otherwise.
+	public boolean read(MapFileReader in) {
+		try {
+			if (!in.readLine())
+				// No more input, at all ...
+				return (false);
+			if (in.hasNext()) {
+				// There is something to read ...
+				name = in.next();
+				if (in.hasNextDouble()) {
+					// There is a longitude to read ...
+					longitude = in.nextDouble();
+					if (in.hasNextDouble()) {
+						// There is a latitude to read ...
+						latitude = in.nextDouble();
+					}
+				}
+				// At least a name was successfully read ...
+				return (true);
+			} else {
+				// Did not even read a name ...
+				return (false);
+			}
+		} catch (IOException e) {
+			// Something went wrong ...
+			return (false);
+		}
+	}
+
     // write -- Write the name of this location to the given stream.  If the
     // "showCoords" argument is true, then also output the Cartesian 
     // coordinates of this location, separated by blanks, on the same line.
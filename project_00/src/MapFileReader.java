@@ -0,0 +1,275 @@
+//
+// MapFileReader
+//
+// This class reads the whitespace-separated fields of location and road
+// files straight from the bytes of a file, one line at a time. It plays
+// the role that a BufferedReader and a per-line Scanner play in the "read"
+// methods of Location and Road, and it accepts exactly the same input:
+// lines end with "\n", "\r", or "\r\n", fields are separated by the
+// characters matched by the regular expression "\s", and numbers are
+// recognized as Scanner recognizes them in the default locale. The
+// current line is kept in a reusable byte array, and plain decimal
+// numbers are converted without building strings, so that only the
+// names that are returned to the caller are allocated. Numbers in any
+// other form are handed to a Scanner, so that they are still parsed
+// exactly as before.
+//
+
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.text.*;
+import java.util.*;
+
+
+public class MapFileReader implements Closeable {
+	// The powers of ten that are exactly representable as doubles ...
+	static final double[] POWERS_OF_TEN = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+		1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+	// The largest integer below which every integer is exactly a double ...
+	static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+	ReadableByteChannel channel;
+	ByteBuffer buffer;
+	Charset charset;
+	// Plain decimal numbers can only be converted directly when the
+	// default locale uses the same notation as Double.parseDouble.
+	boolean plainDecimals;
+	// The current line, and the position of the next unread byte in it ...
+	byte[] line;
+	int lineLength;
+	int pos;
+	// True if the last line ended with "\r", so a following "\n" belongs
+	// to that line ending ...
+	boolean skipLF;
+	// The last number recognized by hasNextDouble, and where it ends ...
+	int parsedAt;
+	int parsedEnd;
+	double parsedValue;
+
+	// Constructor with the channel to be read specified ...
+	public MapFileReader(ReadableByteChannel channel) {
+		this(ByteBuffer.allocate(1 << 16));
+		this.channel = channel;
+		this.buffer.limit(0);
+	}
+
+	// Constructor with the entire contents to be read specified, for
+	// example as a region of a memory-mapped file ...
+	public MapFileReader(ByteBuffer contents) {
+		this.channel = null;
+		this.buffer = contents;
+		this.charset = Charset.defaultCharset();
+		DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(Locale.getDefault(Locale.Category.FORMAT));
+		this.plainDecimals = (symbols.getDecimalSeparator() == '.') && (symbols.getMinusSign() == '-');
+		this.line = new byte[256];
+		this.lineLength = 0;
+		this.pos = 0;
+		this.skipLF = false;
+		this.parsedAt = -1;
+	}
+
+	// open -- Return a reader for the file with the given pathname.
+	public static MapFileReader open(String filename) throws IOException {
+		return (new MapFileReader(FileChannel.open(Paths.get(filename), StandardOpenOption.READ)));
+	}
+
+	// close -- Close the underlying channel, if there is one.
+	public void close() throws IOException {
+		if (channel != null)
+			channel.close();
+	}
+
+	// readLine -- Make the next line of input the current line. Return
+	// false if there is no more input, at all.
+	public boolean readLine() throws IOException {
+		boolean found = false;
+		lineLength = 0;
+		pos = 0;
+		parsedAt = -1;
+		while (buffer.hasRemaining() || fill()) {
+			byte b = buffer.get();
+			if (skipLF) {
+				skipLF = false;
+				if (b == '\n')
+					continue;
+			}
+			found = true;
+			if (b == '\n')
+				return (true);
+			if (b == '\r') {
+				skipLF = true;
+				return (true);
+			}
+			if (lineLength == line.length)
+				line = Arrays.copyOf(line, 2 * lineLength);
+			line[lineLength++] = b;
+		}
+		// A last line need not be terminated ...
+		return (found);
+	}
+
+	// atEnd -- Return true if and only if there are no more lines to read.
+	public boolean atEnd() throws IOException {
+		while (buffer.hasRemaining() || fill()) {
+			if (!skipLF || buffer.get(buffer.position()) != '\n')
+				return (false);
+			buffer.get();
+			skipLF = false;
+		}
+		return (true);
+	}
+
+	// hasNext -- Return true if and only if another field remains on the
+	// current line.
+	public boolean hasNext() {
+		while (pos < lineLength && isSpace(line[pos])) {
+			pos++;
+		}
+		return (pos < lineLength);
+	}
+
+	// next -- Return the next field on the current line as a string.
+	public String next() {
+		if (!hasNext())
+			throw new NoSuchElementException();
+		int end = fieldEnd();
+		String field = new String(line, pos, end - pos, charset);
+		pos = end;
+		return (field);
+	}
+
+	// hasNextDouble -- Return true if and only if the next field on the
+	// current line is a double precision floating point number.
+	public boolean hasNextDouble() {
+		if (!hasNext())
+			return (false);
+		if (parsedAt == pos)
+			return (true);
+		int end = fieldEnd();
+		if (plainDecimals && parsePlain(pos, end)) {
+			parsedAt = pos;
+			parsedEnd = end;
+			return (true);
+		}
+		// Fall back on a Scanner for anything else ...
+		Scanner inScanner = new Scanner(new String(line, pos, end - pos, charset));
+		boolean found = inScanner.hasNextDouble();
+		if (found) {
+			parsedValue = inScanner.nextDouble();
+			parsedAt = pos;
+			parsedEnd = end;
+		}
+		inScanner.close();
+		return (found);
+	}
+
+	// nextDouble -- Return the next field on the current line as a double
+	// precision floating point number.
+	public double nextDouble() {
+		if (!hasNextDouble())
+			throw new InputMismatchException();
+		pos = parsedEnd;
+		return (parsedValue);
+	}
+
+	// parsePlain -- Convert the field between the given positions into
+	// parsedValue, if it is a decimal number with an optional exponent
+	// whose value can be computed with a single correctly rounded
+	// multiplication or division. Return false otherwise.
+	boolean parsePlain(int start, int end) {
+		int i = start;
+		boolean negative = false;
+		if (line[i] == '-' || line[i] == '+') {
+			negative = (line[i] == '-');
+			i++;
+		}
+		long mantissa = 0;
+		int scale = 0;
+		int digits = 0;
+		boolean point = false;
+		for (; i < end; i++) {
+			byte b = line[i];
+			if (b >= '0' && b <= '9') {
+				mantissa = 10 * mantissa + (b - '0');
+				if (mantissa >= MAX_EXACT_MANTISSA)
+					return (false);
+				if (point)
+					scale--;
+				digits++;
+			} else if (b == '.' && !point) {
+				point = true;
+			} else {
+				break;
+			}
+		}
+		if (digits == 0)
+			return (false);
+		if (i < end) {
+			// Only an exponent may follow ...
+			if (line[i] != 'e' && line[i] != 'E')
+				return (false);
+			i++;
+			boolean negativeExponent = false;
+			if (i < end && (line[i] == '-' || line[i] == '+')) {
+				negativeExponent = (line[i] == '-');
+				i++;
+			}
+			if (i == end)
+				return (false);
+			int exponent = 0;
+			for (; i < end; i++) {
+				byte b = line[i];
+				if (b < '0' || b > '9' || exponent > 1000)
+					return (false);
+				exponent = 10 * exponent + (b - '0');
+			}
+			scale += negativeExponent ? -exponent : exponent;
+		}
+		if (scale < -22 || scale > 22)
+			return (false);
+		double value = (double) mantissa;
+		if (scale < 0)
+			value = value / POWERS_OF_TEN[-scale];
+		else
+			value = value * POWERS_OF_TEN[scale];
+		parsedValue = negative ? -value : value;
+		return (true);
+	}
+
+	// fieldEnd -- Return the position just past the field starting at the
+	// current position.
+	int fieldEnd() {
+		int end = pos;
+		while (end < lineLength && !isSpace(line[end])) {
+			end++;
+		}
+		return (end);
+	}
+
+	// fill -- Read more input into the buffer. Return false if there is
+	// no more input.
+	boolean fill() throws IOException {
+		if (channel == null)
+			return (false);
+		buffer.clear();
+		int count;
+		do {
+			count = channel.read(buffer);
+		} while (count == 0);
+		buffer.flip();
+		return (count > 0);
+	}
+
+	// isSpace -- Return true if and only if the given byte is one of the
+	// whitespace characters matched by "\s".
+	static boolean isSpace(byte b) {
+		return (b == ' ' || b == '\t' || b == '\n' || b == 0x0B || b == '\f' || b == '\r');
+	}
+
+}
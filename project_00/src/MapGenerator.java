@@ -0,0 +1,321 @@
+//
+// MapGenerator
+//
+// This class provides a "main" method that writes a synthetic map, as a
+// location file and a road file in the formats read by Location.read and
+// Road.read, so that the search algorithms can be tried on maps far larger
+// than the samples.  Three kinds of map may be generated.  A "grid" map is a
+// square lattice of locations, each joined to its four neighbors in both
+// directions.  A "geometric" map scatters locations at random over a square,
+// about one per unit of area, and joins every pair closer than a radius
+// chosen to give the requested average number of roads per location.  A
+// "road" map is a lattice of city blocks with some streets missing and
+// some one-way, in which every eighth street is a faster arterial road and
+// every sixty-fourth is also a highway, whose long segments join arterial
+// intersections eight blocks apart.  The cost of each road is the time to
+// travel it: its length, measured between the coordinates written for its
+// ends, divided by the speed of its kind of road, and lengthened at random
+// by up to a half for congestion.  Since no road is faster than the speed
+// of its kind, the cost of every road is at least its length divided by
+// the highest speed, which is the bound that GoodHeuristic relies on.
+//
+// Everything about a location or a road, including its coordinates, is
+// computed from a hash of the seed and its position, rather than drawn in
+// sequence from a random number generator, so the files are written in a
+// single pass with memory that does not grow with the map, and maps of
+// tens of millions of locations can be generated.  The same arguments
+// always produce the same files.
+//
+// Usage:  java MapGenerator [-topology grid|geometric|road] [-nodes n]
+//                           [-degree k] [-seed s]
+//                           location-file road-file
+//
+// The defaults are a "road" map of 1000 locations and a seed of 1. The
+// degree only affects "geometric" maps, and defaults to 6. The number of
+// locations in a "geometric" map is random, but close to the number
+// requested.
+//
+
+
+import java.io.*;
+import java.util.*;
+
+
+public class MapGenerator {
+	// Speeds of the kinds of road ...
+	static final double STREET_SPEED = 1.0;
+	static final double ARTERIAL_SPEED = 2.0;
+	static final double HIGHWAY_SPEED = 4.0;
+	// Spacing of arterial roads, and of highways, in blocks ...
+	static final int ARTERIAL_SPACING = 8;
+	static final int HIGHWAY_SPACING = 64;
+	// Fractions of streets that are missing, and that are one-way ...
+	static final double MISSING_STREETS = 0.1;
+	static final double ONE_WAY_STREETS = 0.05;
+
+	long seed = 1;
+	long nodes = 1000;
+	double degree = 6.0;
+	Writer locations;
+	Writer roads;
+	long locationCount = 0;
+	long roadCount = 0;
+	// line is the buffer in which each line is built before it is written.
+	StringBuilder line = new StringBuilder(80);
+
+	public static void main(String[] args) {
+		MapGenerator generator = new MapGenerator();
+		String topology = "road";
+		List<String> files = new ArrayList<String>();
+
+		// Process command line arguments ...
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if (i + 1 < args.length && arg.equals("-topology")) {
+				topology = args[++i];
+			} else if (i + 1 < args.length && arg.equals("-nodes")) {
+				generator.nodes = Long.parseLong(args[++i]);
+			} else if (i + 1 < args.length && arg.equals("-degree")) {
+				generator.degree = Double.parseDouble(args[++i]);
+			} else if (i + 1 < args.length && arg.equals("-seed")) {
+				generator.seed = Long.parseLong(args[++i]);
+			} else {
+				files.add(arg);
+			}
+		}
+		if (files.size() != 2 || generator.nodes < 1 || generator.degree <= 0.0
+				|| !Arrays.asList("grid", "geometric", "road").contains(topology)) {
+			System.err.println("Usage:  java MapGenerator [-topology grid|geometric|road] [-nodes n] [-degree k] [-seed s] location-file road-file");
+			return;
+		}
+
+		try (Writer locations = new BufferedWriter(new FileWriter(files.get(0)), 1 << 16);
+				Writer roads = new BufferedWriter(new FileWriter(files.get(1)), 1 << 16)) {
+			generator.locations = locations;
+			generator.roads = roads;
+			if (topology.equals("geometric")) {
+				generator.geometric();
+			} else {
+				generator.lattice(topology.equals("road"));
+			}
+		} catch (IOException e) {
+			// Something went wrong ...
+			System.err.println("Error:  " + e.getMessage());
+			return;
+		}
+		System.err.printf("%d locations and %d roads written.\n", generator.locationCount, generator.roadCount);
+	}
+
+	// lattice -- Write a "grid" map, or, if "road" is true, a "road" map.
+	// Locations are numbered row by row, and the last row may be partial.
+	void lattice(boolean road) throws IOException {
+		long width = (long) Math.ceil(Math.sqrt((double) nodes));
+		for (long id = 0; id < nodes; id++) {
+			writeLocation(id, latticeX(id, width), latticeY(id, width));
+		}
+		for (long id = 0; id < nodes; id++) {
+			long row = id / width;
+			long column = id % width;
+			// The four neighbors, as offsets in rows and columns ...
+			latticeRoad(road, width, id, row, column, 0, 1);
+			latticeRoad(road, width, id, row, column, 0, -1);
+			latticeRoad(road, width, id, row, column, 1, 0);
+			latticeRoad(road, width, id, row, column, -1, 0);
+			if (road && column % ARTERIAL_SPACING == 0 && row % ARTERIAL_SPACING == 0) {
+				// Highway segments run between arterial intersections ...
+				latticeRoad(road, width, id, row, column, 0, ARTERIAL_SPACING);
+				latticeRoad(road, width, id, row, column, 0, -ARTERIAL_SPACING);
+				latticeRoad(road, width, id, row, column, ARTERIAL_SPACING, 0);
+				latticeRoad(road, width, id, row, column, -ARTERIAL_SPACING, 0);
+			}
+		}
+	}
+
+	// latticeRoad -- Write the road, if there is one, from the location at
+	// the given row and column to the one the given numbers of rows and
+	// columns away.
+	void latticeRoad(boolean road, long width, long id, long row, long column, int rows, int columns) throws IOException {
+		long toRow = row + rows;
+		long toColumn = column + columns;
+		long to = toRow * width + toColumn;
+		if (toRow < 0 || toColumn < 0 || toColumn >= width || to >= nodes)
+			return;
+		String kind = "street";
+		double speed = STREET_SPEED;
+		if (road) {
+			// A line of the lattice is arterial, or a highway, by its
+			// position ...
+			long along = (rows == 0) ? row : column;
+			int length = Math.abs(rows + columns);
+			boolean highway = along % HIGHWAY_SPACING == 0;
+			boolean arterial = along % ARTERIAL_SPACING == 0;
+			if (length > 1) {
+				if (!highway)
+					return;
+				kind = "highway";
+				speed = HIGHWAY_SPEED;
+			} else if (arterial) {
+				kind = "arterial";
+				speed = ARTERIAL_SPEED;
+			} else {
+				// Some streets are missing, in both directions, and some are
+				// one-way, in a direction chosen with the street ...
+				long low = Math.min(id, to);
+				long high = Math.max(id, to);
+				if (unit(low, high, 1) < MISSING_STREETS)
+					return;
+				if (unit(low, high, 2) < ONE_WAY_STREETS && (unit(low, high, 3) < 0.5) != (id == low))
+					return;
+			}
+		}
+		double x = latticeX(id, width), y = latticeY(id, width);
+		double toX = latticeX(to, width), toY = latticeY(to, width);
+		writeRoad(kind, id, to, Math.hypot(toX - x, toY - y) / speed * (1.0 + 0.5 * unit(id, to, 4)));
+	}
+
+	// latticeX, latticeY -- Return the coordinates of the lattice location
+	// with the given ID, which are its column and row, moved at random by up
+	// to a quarter of a block, and rounded as they are written.
+	double latticeX(long id, long width) {
+		return (round(id % width + 0.5 * (unit(id, 0, 5) - 0.5)));
+	}
+
+	double latticeY(long id, long width) {
+		return (round(id / width + 0.5 * (unit(id, 0, 6) - 0.5)));
+	}
+
+	// geometric -- Write a "geometric" map.  The square is divided into cells
+	// as wide as the radius, so that the locations within the radius of a
+	// location are all in its own cell or the eight around it.  The number of
+	// locations in each cell, and their coordinates, are computed from the
+	// cell's position, so a cell can be generated again whenever it is
+	// needed.  A location's ID is its cell's number times CELL_LIMIT, plus
+	// its position in its cell.
+	static final int CELL_LIMIT = 1000;
+
+	void geometric() throws IOException {
+		double radius = Math.sqrt(degree / Math.PI);
+		long cells = Math.max(1, (long) Math.ceil(Math.sqrt((double) nodes) / radius));
+		double mean = (double) nodes / ((double) cells * cells);
+		double[] xs = new double[CELL_LIMIT], ys = new double[CELL_LIMIT];
+		double[] nxs = new double[CELL_LIMIT], nys = new double[CELL_LIMIT];
+		for (long cy = 0; cy < cells; cy++) {
+			for (long cx = 0; cx < cells; cx++) {
+				long cell = cy * cells + cx;
+				int n = cellPoints(cell, cx, cy, mean, radius, xs, ys);
+				for (int i = 0; i < n; i++) {
+					writeLocation(cell * CELL_LIMIT + i, xs[i], ys[i]);
+				}
+			}
+		}
+		for (long cy = 0; cy < cells; cy++) {
+			for (long cx = 0; cx < cells; cx++) {
+				long cell = cy * cells + cx;
+				int n = cellPoints(cell, cx, cy, mean, radius, xs, ys);
+				for (long ny = cy - 1; ny <= cy + 1; ny++) {
+					for (long nx = cx - 1; nx <= cx + 1; nx++) {
+						if (nx < 0 || ny < 0 || nx >= cells || ny >= cells)
+							continue;
+						long neighbor = ny * cells + nx;
+						int m = cellPoints(neighbor, nx, ny, mean, radius, nxs, nys);
+						for (int i = 0; i < n; i++) {
+							for (int j = 0; j < m; j++) {
+								if (neighbor == cell && i == j)
+									continue;
+								double length = Math.hypot(nxs[j] - xs[i], nys[j] - ys[i]);
+								if (length <= radius) {
+									long from = cell * CELL_LIMIT + i;
+									long to = neighbor * CELL_LIMIT + j;
+									writeRoad("street", from, to, length / STREET_SPEED * (1.0 + 0.5 * unit(from, to, 4)));
+								}
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
+	// cellPoints -- Fill in the coordinates of the locations in the given
+	// cell, returning their number, which is drawn from a Poisson
+	// distribution with the given mean.
+	int cellPoints(long cell, long cx, long cy, double mean, double size, double[] xs, double[] ys) {
+		// Counts uniform draws until their product falls below e^-mean ...
+		double limit = Math.exp(-mean);
+		double product = unit(cell, 0, 7);
+		int n = 0;
+		while (product > limit && n < CELL_LIMIT) {
+			product *= unit(cell, n + 1, 7);
+			n++;
+		}
+		for (int i = 0; i < n; i++) {
+			xs[i] = round((cx + unit(cell, i, 8)) * size);
+			ys[i] = round((cy + unit(cell, i, 9)) * size);
+		}
+		return (n);
+	}
+
+	// writeLocation -- Write a line of the location file.
+	void writeLocation(long id, double x, double y) throws IOException {
+		line.setLength(0);
+		line.append('L').append(id).append(' ');
+		appendThousandths(line, Math.round(x * 1000.0));
+		line.append(' ');
+		appendThousandths(line, Math.round(y * 1000.0));
+		line.append('\n');
+		locations.append(line);
+		locationCount++;
+	}
+
+	// writeRoad -- Write a line of the road file, rounding the cost up to
+	// the next thousandth, so that it is never less than the length of the
+	// road divided by its speed.
+	void writeRoad(String kind, long from, long to, double cost) throws IOException {
+		line.setLength(0);
+		line.append(kind).append(" L").append(from).append(" L").append(to).append(' ');
+		appendThousandths(line, Math.max(1, (long) Math.ceil(cost * 1000.0 - 1e-6)));
+		line.append('\n');
+		roads.append(line);
+		roadCount++;
+	}
+
+	// appendThousandths -- Append the given number of thousandths, in
+	// decimal.
+	static void appendThousandths(StringBuilder line, long thousandths) {
+		if (thousandths < 0) {
+			line.append('-');
+			thousandths = -thousandths;
+		}
+		line.append(thousandths / 1000).append('.');
+		long fraction = thousandths % 1000;
+		if (fraction < 100)
+			line.append('0');
+		if (fraction < 10)
+			line.append('0');
+		line.append(fraction);
+	}
+
+	// round -- Round the given coordinate to the thousandth, as it will be
+	// written, so that road lengths are measured as they will be read.
+	static double round(double value) {
+		return (Math.round(value * 1000.0) / 1000.0);
+	}
+
+	// unit -- Return a number in [0, 1) computed from the seed and the
+	// given values, which is unrelated to that of any other values.
+	double unit(long a, long b, long salt) {
+		long h = mix(seed + 0x9E3779B97F4A7C15L * salt);
+		h = mix(h ^ a);
+		h = mix(h ^ b);
+		return ((h >>> 11) * 0x1.0p-53);
+	}
+
+	// mix -- Scramble the bits of the given value (the finalizer of the
+	// SplitMix64 generator).
+	static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return (z ^ (z >>> 31));
+	}
+
+}
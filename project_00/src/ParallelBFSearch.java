@@ -0,0 +1,192 @@
+//
+// ParallelBFSearch
+//
+// This class implements a level-synchronous breadth-first search over a
+// RoadGraph, for jobs that need the number of roads from one location to
+// every other, or just the set of locations that can be reached, rather
+// than a single path.  The search proceeds one level at a time.  The
+// locations of the current level are split into chunks, which are
+// expanded in parallel by the tasks of a fork-join pool, and the chunks of
+// the next level that they produce are then gathered into one array.  A
+// location is claimed by the first task to set its bit in a shared bitset
+// of visited locations, which is updated with atomic compare-and-set
+// operations, so each location is placed in the next level exactly once
+// and needs no locking.  Levels are separated by the completion of all of
+// their tasks, so the hop distances recorded by one level are visible to
+// the next.
+//
+
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+
+public class ParallelBFSearch {
+	// Chunks of a level are no smaller than this many locations ...
+	static final int GRAIN = 1024;
+
+	public RoadGraph graph;
+	public ForkJoinPool pool;
+	public int expansionCount = 0;
+	// visited holds one bit per location ID, set once the location has been
+	// reached by the current search.
+	AtomicLongArray visited;
+	// distance holds the number of roads from the source to each location,
+	// or -1 for locations that have not been reached.
+	int[] distance;
+	// chunks holds the locations added to the next level by each chunk of
+	// the current level.
+	int[][] chunks;
+
+	// Constructor with the RoadGraph to be searched specified, using the
+	// common fork-join pool ...
+	public ParallelBFSearch(RoadGraph graph) {
+		this(graph, ForkJoinPool.commonPool());
+	}
+
+	// Constructor with the RoadGraph to be searched and the fork-join pool
+	// to search it with specified ...
+	public ParallelBFSearch(RoadGraph graph, ForkJoinPool pool) {
+		this.graph = graph;
+		this.pool = pool;
+		this.visited = new AtomicLongArray((graph.locationCount() + 63) >>> 6);
+		this.distance = new int[graph.locationCount()];
+		this.chunks = new int[0][];
+	}
+
+	// hopDistances -- Return an array giving, for each location ID, the
+	// number of roads on the shortest path from the location with the given
+	// ID to that location, or -1 if it cannot be reached.  The array is
+	// shared with later searches, so it should be copied if it is to be
+	// kept.
+	public int[] hopDistances(int source) {
+		search(source);
+		return distance;
+	}
+
+	// reachable -- Return the set of IDs of the locations that can be
+	// reached from the location with the given ID, including itself.
+	public BitSet reachable(int source) {
+		search(source);
+		BitSet result = new BitSet(distance.length);
+		for (int id = 0; id < distance.length; id++) {
+			if (distance[id] >= 0) {
+				result.set(id);
+			}
+		}
+		return result;
+	}
+
+	// search -- Fill in distance for a search from the location with the
+	// given ID, one level at a time.
+	void search(int source) {
+		for (int i = 0; i < visited.length(); i++) {
+			visited.set(i, 0L);
+		}
+		Arrays.fill(distance, -1);
+		expansionCount = 0;
+
+		int[] level = { source };
+		int levelSize = 1;
+		int depth = 0;
+		mark(source);
+		distance[source] = 0;
+		while (levelSize > 0) {
+			depth++;
+			int chunkCount = (levelSize + GRAIN - 1) / GRAIN;
+			if (chunks.length < chunkCount) {
+				chunks = Arrays.copyOf(chunks, Math.max(chunkCount, 2 * chunks.length));
+			}
+			if (chunkCount == 1) {
+				// A small level is not worth handing to the pool ...
+				new Level(level, levelSize, depth, 0, 1).compute();
+			} else {
+				pool.invoke(new Level(level, levelSize, depth, 0, chunkCount));
+			}
+			expansionCount += levelSize;
+
+			// Gathers the chunks of the next level ...
+			int nextSize = 0;
+			for (int c = 0; c < chunkCount; c++) {
+				nextSize += chunks[c][0];
+			}
+			int[] next = (level.length >= nextSize) ? level : new int[nextSize];
+			int n = 0;
+			for (int c = 0; c < chunkCount; c++) {
+				System.arraycopy(chunks[c], 1, next, n, chunks[c][0]);
+				n += chunks[c][0];
+			}
+			level = next;
+			levelSize = nextSize;
+		}
+	}
+
+	// mark -- Set the visited bit of the location with the given ID, and
+	// return true if it was not already set.
+	boolean mark(int id) {
+		int word = id >>> 6;
+		long bit = 1L << (id & 63);
+		while (true) {
+			long old = visited.get(word);
+			if ((old & bit) != 0) {
+				return false;
+			}
+			if (visited.compareAndSet(word, old, old | bit)) {
+				return true;
+			}
+		}
+	}
+
+	// Level -- The task expanding chunks "first" up to, but not including,
+	// "end" of a level.  Tasks covering more than one chunk split in half;
+	// a task covering one chunk expands its locations and records the
+	// locations it claims in that chunk's entry of chunks, preceded by
+	// their number.
+	class Level extends RecursiveAction {
+		static final long serialVersionUID = 1;
+		int[] level;
+		int levelSize, depth, first, end;
+
+		Level(int[] level, int levelSize, int depth, int first, int end) {
+			this.level = level;
+			this.levelSize = levelSize;
+			this.depth = depth;
+			this.first = first;
+			this.end = end;
+		}
+
+		protected void compute() {
+			if (end - first > 1) {
+				int middle = (first + end) >>> 1;
+				invokeAll(new Level(level, levelSize, depth, first, middle),
+						new Level(level, levelSize, depth, middle, end));
+				return;
+			}
+			int lo = first * GRAIN;
+			int hi = Math.min(lo + GRAIN, levelSize);
+			int[] out = chunks[first];
+			if (out == null) {
+				out = new int[GRAIN + 1];
+			}
+			int n = 0;
+			for (int i = lo; i < hi; i++) {
+				int u = level[i];
+				for (int e = graph.offsets[u]; e < graph.offsets[u + 1]; e++) {
+					int v = graph.targets[e];
+					if (!mark(v)) {
+						continue;
+					}
+					distance[v] = depth;
+					if (n + 1 == out.length) {
+						out = Arrays.copyOf(out, 2 * out.length);
+					}
+					out[++n] = v;
+				}
+			}
+			out[0] = n;
+			chunks[first] = out;
+		}
+	}
+
+}
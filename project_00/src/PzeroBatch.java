@@ -0,0 +1,283 @@
+//
+// PzeroBatch
+//
+// This class provides a "main" method that runs the search algorithms of
+// Pzero on many search problems without prompting, in order to measure
+// how many of them can be answered, and how quickly.  The map is read
+// once, from the given location and road files, and a RoadGraph is built
+// from it to be shared by every search.  Pairs of initial and destination
+// location names are then read from a query file, one pair per line, and
+// handed in blocks to a pool of worker threads.  Each thread keeps its own
+// search objects, which are reused from one query to the next, so that
+// their explored sets and frontiers are not reallocated.  For every query
+// and algorithm, a line of comma-separated values is written, giving
+// whether a solution was found, its depth and path cost, the number of
+// node expansions, and the wall-clock time taken by the search.  Lines are
+// written in the order of the queries, whatever the order in which the
+// threads finish them.  A summary is sent to the standard error stream.
+//
+// Usage:  java PzeroBatch [-threads n] [-limit n] [-algorithms a,b,...]
+//                         [-matrix file] [-output file] location-file
+//                         road-file query-file
+//
+// The algorithms are "bfs" and "dfs", with repeated state checking,
+// "bfs-nocheck" and "dfs-nocheck", without it, "bfs-tree" and "dfs-tree",
+// which perform the same searches as the first two but build their search
+// trees in a SearchTree, rather than out of Node objects,
+// "bfs-bidirectional", "dfs-deepening", and "bfs-matrix", which looks up the path with the
+// fewest roads in a HopMatrix, built once for the whole map before any
+// query is answered, and reports no expansions.  The matrix is kept on the
+// heap, unless a file is given with "-matrix", in which case the matrix in
+// that file is used, or it is built there if the file does not exist.  By
+// default, "bfs" and "dfs" are run, on as many threads as there are
+// processors, with Pzero's depth limit of 1000.  Blank lines and lines
+// starting with "#" in the query file are skipped.  A query naming a
+// location that is not on the map is not searched, and is reported as
+// having no solution, with no expansions, as is a query whose destination
+// cannot be reached from its initial location, which the components of
+// the map, found as it is read, reveal at once.
+//
+
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+
+public class PzeroBatch {
+	// Queries are handed to the threads in blocks of this many ...
+	static final int BLOCK = 256;
+	static final String HEADER = "query,initial,destination,algorithm,found,depth,cost,expansions,micros";
+
+	// Searcher -- The search objects of one worker thread.
+	static class Searcher {
+		BFSearch bfs;
+		DFSearch dfs;
+		HopMatrix matrix;
+
+		Searcher(Map graph, RoadGraph roads, HopMatrix matrix, int limit) {
+			this.bfs = new BFSearch(graph, roads, null, null, limit);
+			this.dfs = new DFSearch(graph, roads, null, null, limit);
+			// Queries that cannot be answered are rejected without
+			// searching ...
+			this.bfs.components = this.dfs.components = graph.components();
+			this.matrix = matrix;
+		}
+
+		// run -- Run the named algorithm on the given query, appending a
+		// line describing the result to the given buffer.
+		void run(String algorithm, long query, String initialLoc, String destinationLoc, StringBuilder out) {
+			if (bfs.graph.findLocation(initialLoc) == null || bfs.graph.findLocation(destinationLoc) == null) {
+				row(out, query, initialLoc, destinationLoc, algorithm, null, 0, 0);
+				return;
+			}
+			bfs.initialLoc = dfs.initialLoc = initialLoc;
+			bfs.destinationLoc = dfs.destinationLoc = destinationLoc;
+			long start = System.nanoTime();
+			Node solution;
+			int expansions;
+			switch (algorithm) {
+			case "bfs":
+				solution = bfs.search(true);
+				expansions = bfs.expansionCount;
+				break;
+			case "bfs-nocheck":
+				solution = bfs.search(false);
+				expansions = bfs.expansionCount;
+				break;
+			case "bfs-bidirectional":
+				solution = bfs.searchBidirectional();
+				expansions = bfs.expansionCount;
+				break;
+			case "bfs-matrix":
+				// Paths longer than the limit are not found, as with
+				// "bfs-bidirectional" ...
+				solution = matrix.path(bfs.graph.findLocation(initialLoc).id, bfs.graph.findLocation(destinationLoc).id);
+				if (solution != null && solution.depth > bfs.limit)
+					solution = null;
+				expansions = 0;
+				break;
+			case "dfs":
+				solution = dfs.search(true);
+				expansions = dfs.expansionCount;
+				break;
+			case "dfs-nocheck":
+				solution = dfs.search(false);
+				expansions = dfs.expansionCount;
+				break;
+			case "bfs-tree":
+				solution = bfs.searchTree(true);
+				expansions = bfs.expansionCount;
+				break;
+			case "dfs-tree":
+				solution = dfs.searchTree(true);
+				expansions = dfs.expansionCount;
+				break;
+			default:
+				solution = dfs.searchIterativeDeepening();
+				expansions = dfs.expansionCount;
+				break;
+			}
+			long nanos = System.nanoTime() - start;
+			row(out, query, initialLoc, destinationLoc, algorithm, solution, expansions, nanos);
+		}
+	}
+
+	public static void main(String[] args) {
+		int threads = Runtime.getRuntime().availableProcessors();
+		int limit = 1000;
+		String[] algorithms = { "bfs", "dfs" };
+		String outputFilename = null;
+		String matrixFilename = null;
+		List<String> files = new ArrayList<String>();
+
+		// Process command line arguments ...
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if (i + 1 < args.length && arg.equals("-threads")) {
+				threads = Math.max(1, Integer.parseInt(args[++i]));
+			} else if (i + 1 < args.length && arg.equals("-limit")) {
+				limit = Integer.parseInt(args[++i]);
+			} else if (i + 1 < args.length && arg.equals("-algorithms")) {
+				algorithms = args[++i].split(",");
+			} else if (i + 1 < args.length && arg.equals("-matrix")) {
+				matrixFilename = args[++i];
+			} else if (i + 1 < args.length && arg.equals("-output")) {
+				outputFilename = args[++i];
+			} else {
+				files.add(arg);
+			}
+		}
+		List<String> known = Arrays.asList("bfs", "bfs-nocheck", "bfs-bidirectional", "dfs", "dfs-nocheck", "dfs-deepening", "bfs-matrix", "bfs-tree", "dfs-tree");
+		for (String algorithm : algorithms) {
+			if (!known.contains(algorithm)) {
+				System.err.println("Error: Unknown algorithm, " + algorithm + ".");
+				return;
+			}
+		}
+		if (files.size() != 3) {
+			System.err.println("Usage:  java PzeroBatch [-threads n] [-limit n] [-algorithms a,b,...] [-matrix file] [-output file] location-file road-file query-file");
+			return;
+		}
+
+		// Read map ...
+		Map graph = new Map(files.get(0), files.get(1));
+		if (!(graph.readLocations() && graph.readRoads())) {
+			System.err.println("Error: Unable to read map.");
+			return;
+		}
+		RoadGraph roads = new RoadGraph(graph);
+		// The reverse graph is built on first use, so it is built here,
+		// before the threads share it ...
+		if (Arrays.asList(algorithms).contains("bfs-bidirectional")) {
+			roads.reverse();
+		}
+		HopMatrix matrix = null;
+		if (Arrays.asList(algorithms).contains("bfs-matrix")) {
+			try {
+				if (matrixFilename == null) {
+					matrix = new HopMatrix(roads);
+				} else if (new File(matrixFilename).exists()) {
+					matrix = HopMatrix.open(roads, new File(matrixFilename));
+				} else {
+					matrix = new HopMatrix(roads, new File(matrixFilename));
+				}
+			} catch (IOException | IllegalArgumentException e) {
+				System.err.println("Error: " + e.getMessage());
+				return;
+			}
+		}
+		final HopMatrix hopMatrix = matrix;
+
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		final int searchLimit = limit;
+		final String[] searchAlgorithms = algorithms;
+		ThreadLocal<Searcher> searchers = ThreadLocal.withInitial(() -> new Searcher(graph, roads, hopMatrix, searchLimit));
+		long started = System.nanoTime();
+		long queries = 0;
+		try (BufferedReader in = new BufferedReader(new FileReader(files.get(2)), 1 << 16);
+				Writer out = new BufferedWriter((outputFilename == null)
+						? new OutputStreamWriter(System.out) : new FileWriter(outputFilename), 1 << 16)) {
+			out.write(HEADER);
+			out.write('\n');
+			// Blocks in progress, oldest first, of which at most a few per
+			// thread are kept, so the query file is never held in memory ...
+			ArrayDeque<Future<StringBuilder>> pending = new ArrayDeque<Future<StringBuilder>>();
+			String[][] block;
+			while ((block = readBlock(in)) != null) {
+				final String[][] queryBlock = block;
+				final long first = queries + 1;
+				queries += block.length;
+				pending.add(pool.submit(() -> {
+					Searcher searcher = searchers.get();
+					StringBuilder rows = new StringBuilder();
+					for (int i = 0; i < queryBlock.length; i++) {
+						for (String algorithm : searchAlgorithms) {
+							searcher.run(algorithm, first + i, queryBlock[i][0], queryBlock[i][1], rows);
+						}
+					}
+					return (rows);
+				}));
+				if (pending.size() >= 4 * threads) {
+					out.append(pending.remove().get());
+				}
+			}
+			while (!pending.isEmpty()) {
+				out.append(pending.remove().get());
+			}
+		} catch (IOException e) {
+			// Something went wrong ...
+			System.err.println("Error: " + e.getMessage());
+		} catch (InterruptedException | ExecutionException e) {
+			System.err.println("Error: " + e.getMessage());
+		} finally {
+			pool.shutdownNow();
+		}
+		double seconds = (System.nanoTime() - started) / 1e9;
+		System.err.printf("%d queries, %d searches, %.3f seconds, %.1f queries per second, %d threads.\n",
+				queries, queries * algorithms.length, seconds, queries / seconds, threads);
+	}
+
+	// readBlock -- Read the next block of queries from the given stream, as
+	// pairs of names, returning null at the end of the stream.
+	static String[][] readBlock(BufferedReader in) throws IOException {
+		List<String[]> block = new ArrayList<String[]>(BLOCK);
+		String line;
+		while (block.size() < BLOCK && (line = in.readLine()) != null) {
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith("#"))
+				continue;
+			String[] names = line.split("\\s+");
+			if (names.length != 2) {
+				System.err.println("Skipping malformed query: " + line);
+				continue;
+			}
+			block.add(names);
+		}
+		return (block.isEmpty() ? null : block.toArray(new String[block.size()][]));
+	}
+
+	// row -- Append a line of comma-separated values describing the result
+	// of one search to the given buffer.
+	static void row(StringBuilder out, long query, String initialLoc, String destinationLoc, String algorithm, Node solution, int expansions, long nanos) {
+		out.append(query).append(',');
+		field(out, initialLoc).append(',');
+		field(out, destinationLoc).append(',');
+		out.append(algorithm).append(',');
+		if (solution == null) {
+			out.append("false,,,");
+		} else {
+			out.append("true,").append(solution.depth).append(',').append(solution.partialPathCost).append(',');
+		}
+		out.append(expansions).append(',').append(nanos / 1000).append('\n');
+	}
+
+	// field -- Append the given value to the given buffer, quoted if it
+	// contains a comma or a quotation mark.
+	static StringBuilder field(StringBuilder out, String value) {
+		if (value.indexOf(',') < 0 && value.indexOf('"') < 0)
+			return (out.append(value));
+		return (out.append('"').append(value.replace("\"", "\"\"")).append('"'));
+	}
+
+}
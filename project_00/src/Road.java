@@ -77,6 +77,37 @@ public class Road {
 		}
 	}
 
+    // read -- Read a road segment description from the next line of the
+    // given MapFileReader into this object, accepting exactly what the
+    // version of this method that takes a BufferedReader accepts, but
+    // without building a Scanner for the line.  Return true if and only if
+    // all fields are successfully read.
+	public boolean read(MapFileReader in) {
+		try {
+			if (!in.readLine())
+				// No more input, at all ...
+				return (false);
+			if (!in.hasNext())
+				return (false);
+			name = in.next();
+			if (!in.hasNext())
+				return (false);
+			fromLocationName = in.next();
+			fromLocation = null;
+			if (!in.hasNext())
+				return (false);
+			toLocationName = in.next();
+			toLocation = null;
+			if (!in.hasNextDouble())
+				return (false);
+			cost = in.nextDouble();
+			return (true);
+		} catch (IOException e) {
+			// Something went wrong ...
+			return (false);
+		}
+	}
+
     // write -- Write a description of this Road object to the given stream.
     // If "showLocs" is false, then only write the name of the road segment.
     // If "showLocs" is true, then generate a more verbose description of
@@ -0,0 +1,145 @@
+//
+// RoadGraph
+//
+// This class implements an immutable, compressed view of the roads of a
+// Map, for use by search algorithms.  The roads leading out of all of the
+// locations are laid end to end in two parallel arrays, one holding the
+// location ID at the end of each road and the other holding its cost, with
+// the roads leading out of each location kept together, in the order in
+// which they were recorded.  A third array holds, for each location ID,
+// the position of its first road, so the roads out of location "i" occupy
+// positions "offsets[i]" up to, but not including, "offsets[i+1]".
+// Expanding a node thus reads a few consecutive array elements, rather
+// than following references from Location objects to Road objects to
+// Location objects.  The view is a snapshot: locations or roads recorded
+// in the Map after it is built are not reflected in it.  The reverse of a
+// graph, in which each road leads the other way, lists the roads leading
+// into each location, for searches that work back from a destination.
+//
+
+
+import java.util.*;
+
+
+public class RoadGraph {
+    Location[] locations;
+    int[] offsets;
+    int[] targets;
+    double[] costs;
+    // reversed is the reverse of this graph, once it has been built.  It
+    // is volatile, so that a thread that finds it set also sees it whole ...
+    volatile RoadGraph reversed;
+
+    // Constructor with the Map to be viewed specified ...
+	public RoadGraph(Map map) {
+		int n = map.locationCount();
+		this.locations = new Location[n];
+		this.offsets = new int[n + 1];
+		int roadCount = 0;
+		for (int id = 0; id < n; id++) {
+			locations[id] = map.location(id);
+			roadCount += locations[id].roads.size();
+		}
+		this.targets = new int[roadCount];
+		this.costs = new double[roadCount];
+		int e = 0;
+		for (int id = 0; id < n; id++) {
+			offsets[id] = e;
+			for (Road r : locations[id].roads) {
+				targets[e] = r.toLocation.id;
+				costs[e] = r.cost;
+				e++;
+			}
+		}
+		offsets[n] = e;
+	}
+
+    // Constructor with the arrays of the graph specified ...
+	RoadGraph(Location[] locations, int[] offsets, int[] targets, double[] costs) {
+		this.locations = locations;
+		this.offsets = offsets;
+		this.targets = targets;
+		this.costs = costs;
+	}
+
+    // reverse -- Return a RoadGraph over the same locations in which every
+    // road is reversed, so that the roads listed for a location are those
+    // leading into it in this graph, in order of their "from" locations.
+    // The reverse is built the first time it is requested, by counting the
+    // roads into each location, and then kept.  Threads sharing the graph
+    // may request it at once, so it is built under a lock, by one of them,
+    // and it is only published once it is complete, with its own reverse
+    // already set to this graph.
+	public RoadGraph reverse() {
+		RoadGraph result = reversed;
+		if (result != null) {
+			return (result);
+		}
+		synchronized (this) {
+			if (reversed != null) {
+				return (reversed);
+			}
+			int n = locations.length;
+			int[] reverseOffsets = new int[n + 1];
+			for (int e = 0; e < targets.length; e++) {
+				reverseOffsets[targets[e] + 1]++;
+			}
+			for (int id = 0; id < n; id++) {
+				reverseOffsets[id + 1] += reverseOffsets[id];
+			}
+			int[] reverseTargets = new int[targets.length];
+			double[] reverseCosts = new double[costs.length];
+			int[] next = Arrays.copyOf(reverseOffsets, n);
+			for (int id = 0; id < n; id++) {
+				for (int e = offsets[id]; e < offsets[id + 1]; e++) {
+					int r = next[targets[e]]++;
+					reverseTargets[r] = id;
+					reverseCosts[r] = costs[e];
+				}
+			}
+			result = new RoadGraph(locations, reverseOffsets, reverseTargets, reverseCosts);
+			result.reversed = this;
+			reversed = result;
+			return (result);
+		}
+	}
+
+    // locationCount -- Return the number of locations in this graph.
+	public int locationCount() {
+		return (locations.length);
+	}
+
+    // roadCount -- Return the number of roads in this graph.
+	public int roadCount() {
+		return (targets.length);
+	}
+
+    // location -- Return the Location object with the given location ID.
+	public Location location(int id) {
+		return (locations[id]);
+	}
+
+    // firstRoad -- Return the position of the first road leading out of the
+    // location with the given ID.
+	public int firstRoad(int id) {
+		return (offsets[id]);
+	}
+
+    // endRoad -- Return the position just past the last road leading out of
+    // the location with the given ID.
+	public int endRoad(int id) {
+		return (offsets[id + 1]);
+	}
+
+    // target -- Return the location ID at the end of the road at the given
+    // position.
+	public int target(int road) {
+		return (targets[road]);
+	}
+
+    // cost -- Return the cost of the road at the given position.
+	public double cost(int road) {
+		return (costs[road]);
+	}
+
+}
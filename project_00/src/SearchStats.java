@@ -0,0 +1,157 @@
+//
+// SearchStats
+//
+// This class records what a search did, beyond its result: the number of
+// nodes expanded, the number of nodes generated (that is, added to the
+// frontier, counting the initial node), the largest number of nodes in
+// the frontier at once, the number of locations in the explored set when
+// the search ended, the number of nodes that replaced a costlier node for
+// the same location in the frontier, the time taken, in nanoseconds, and
+// the number of bytes allocated by the searching thread, as told by the
+// virtual machine, or -1 if it cannot tell.  Each search object keeps one
+// SearchStats in its "stats" variable, which its "search" method fills
+// in, and which is reused by the next search.
+// When a search finishes, the same figures are also committed as a Java
+// Flight Recorder event, named "pzero.Search", so that the searches of a
+// running program can be profiled by starting a recording, for example
+// with "jcmd <pid> JFR.start", with no other change.  When no recording
+// enables the event, committing it costs next to nothing.
+//
+
+
+import java.lang.management.*;
+import jdk.jfr.*;
+
+
+public class SearchStats {
+	public String algorithm;
+	public boolean found;
+	// depth and cost describe the solution found, if any, and are -1 and
+	// 0.0 otherwise.
+	public int depth;
+	public double cost;
+	public long expansions, generated, frontierPeak, exploredSize, reopened;
+	public long nanos, allocatedBytes;
+	// started is the time at which the search started, allocatedAtStart is
+	// the number of bytes the thread had allocated by then, and event is
+	// the flight recorder event timing it.
+	long started, allocatedAtStart;
+	SearchEvent event;
+	// threads tells how many bytes each thread has allocated, or is null
+	// if the virtual machine cannot tell.
+	static final com.sun.management.ThreadMXBean threads = allocationBean();
+
+	// SearchEvent -- The flight recorder event committed for each search.
+	@Name("pzero.Search")
+	@Label("Search")
+	@Category("Pzero")
+	@Description("A search for a path from one location to another")
+	static class SearchEvent extends Event {
+		@Label("Algorithm")
+		String algorithm;
+		@Label("Found")
+		boolean found;
+		@Label("Depth")
+		int depth;
+		@Label("Cost")
+		double cost;
+		@Label("Expansions")
+		long expansions;
+		@Label("Generated")
+		long generated;
+		@Label("Frontier Peak")
+		long frontierPeak;
+		@Label("Explored Size")
+		long exploredSize;
+		@Label("Reopened")
+		long reopened;
+		@Label("Allocated")
+		@DataAmount
+		long allocatedBytes;
+	}
+
+	// start -- Clear the statistics for a new search with the given
+	// algorithm, and start timing it.
+	public void start(String algorithm) {
+		this.algorithm = algorithm;
+		found = false;
+		depth = -1;
+		cost = 0.0;
+		expansions = generated = frontierPeak = exploredSize = reopened = 0;
+		nanos = 0;
+		allocatedBytes = -1;
+		event = new SearchEvent();
+		event.begin();
+		allocatedAtStart = allocatedBytes();
+		started = System.nanoTime();
+	}
+
+	// frontier -- Record the given number of nodes in the frontier, keeping
+	// the largest.
+	public void frontier(int size) {
+		if (size > frontierPeak) {
+			frontierPeak = size;
+		}
+	}
+
+	// finish -- Stop timing the search, record its solution, which may be
+	// null, along with its expansion count and the size of its explored
+	// set, commit the flight recorder event, and return the solution.
+	public Node finish(Node solution, int expansions, int exploredSize) {
+		nanos = System.nanoTime() - started;
+		long allocated = allocatedBytes();
+		if (allocated >= 0 && allocatedAtStart >= 0) {
+			allocatedBytes = allocated - allocatedAtStart;
+		}
+		event.end();
+		found = (solution != null);
+		if (found) {
+			depth = solution.depth;
+			cost = solution.partialPathCost;
+		}
+		this.expansions = expansions;
+		this.exploredSize = exploredSize;
+		if (event.shouldCommit()) {
+			event.algorithm = algorithm;
+			event.found = found;
+			event.depth = depth;
+			event.cost = cost;
+			event.expansions = this.expansions;
+			event.generated = generated;
+			event.frontierPeak = frontierPeak;
+			event.exploredSize = this.exploredSize;
+			event.reopened = reopened;
+			event.allocatedBytes = allocatedBytes;
+			event.commit();
+		}
+		event = null;
+		return (solution);
+	}
+
+	// toString -- Return the statistics on one line.
+	public String toString() {
+		return String.format("%s: found=%b depth=%d cost=%s expansions=%d generated=%d frontierPeak=%d exploredSize=%d reopened=%d nanos=%d allocatedBytes=%d",
+				algorithm, found, depth, cost, expansions, generated, frontierPeak, exploredSize, reopened, nanos, allocatedBytes);
+	}
+
+	// allocationBean -- Return the bean telling how many bytes each thread
+	// has allocated, or null if the virtual machine cannot tell.
+	static com.sun.management.ThreadMXBean allocationBean() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) bean;
+			if (hotspot.isThreadAllocatedMemorySupported())
+				return (hotspot);
+		}
+		return (null);
+	}
+
+	// allocatedBytes -- Return the number of bytes allocated so far by the
+	// current thread, or -1 if the virtual machine cannot tell.
+	static long allocatedBytes() {
+		if (threads == null || !threads.isThreadAllocatedMemoryEnabled())
+			return (-1);
+		return (threads.getThreadAllocatedBytes(Thread.currentThread().getId()));
+	}
+
+}
@@ -0,0 +1,172 @@
+//
+// Components
+//
+// This class records which locations of a RoadGraph can possibly be
+// reached from which others, so that a search for a path that cannot
+// exist may be abandoned before it starts.  Two kinds of component are
+// found, each numbered by location ID.  The strongly connected components,
+// within each of which every location can be reached from every other,
+// are found by Tarjan's algorithm, which numbers them so that no road
+// leads from a component to one with a higher number.  The weakly
+// connected components, in which the direction of roads is ignored, are
+// found by merging the ends of each road with a union-find structure.  A
+// location in a different weak component, or in a strong component with a
+// higher number, cannot be reached; a location in the same strong
+// component always can.  When every road has a partner leading the other
+// way, the two kinds of component are the same, and the answer is exact.
+// Otherwise, some pairs that cannot be reached are not detected, and must
+// still be searched.
+//
+
+
+import java.util.*;
+
+
+public class Components {
+	// strong and weak hold the strong and weak component number of each
+	// location ID.
+	int[] strong;
+	int[] weak;
+	int strongCount = 0, weakCount = 0;
+
+	// Constructor with the RoadGraph to be examined specified ...
+	public Components(RoadGraph graph) {
+		int n = graph.locationCount();
+		this.strong = new int[n];
+		this.weak = new int[n];
+		findStrong(graph);
+		findWeak(graph);
+	}
+
+	// mayReach -- Return false if the location with the second ID certainly
+	// cannot be reached from the location with the first ID, and true if it
+	// may be.  A negative ID, standing for an unknown location, cannot be
+	// reached.
+	public boolean mayReach(int from, int to) {
+		if (from < 0 || to < 0)
+			return (false);
+		if (weak[from] != weak[to])
+			return (false);
+		return (strong[to] <= strong[from]);
+	}
+
+	// stronglyConnected -- Return true if each of the locations with the
+	// given IDs can be reached from the other.
+	public boolean stronglyConnected(int a, int b) {
+		return (strong[a] == strong[b]);
+	}
+
+	// strongComponent -- Return the strong component number of the location
+	// with the given ID.
+	public int strongComponent(int id) {
+		return (strong[id]);
+	}
+
+	// weakComponent -- Return the weak component number of the location
+	// with the given ID.
+	public int weakComponent(int id) {
+		return (weak[id]);
+	}
+
+	// strongCount -- Return the number of strongly connected components.
+	public int strongCount() {
+		return (strongCount);
+	}
+
+	// weakCount -- Return the number of weakly connected components.
+	public int weakCount() {
+		return (weakCount);
+	}
+
+	// findStrong -- Fill in strong using Tarjan's algorithm.  The depth-first
+	// search is kept on explicit stacks, rather than made by recursion, so
+	// that long chains of roads cannot overflow the call stack.  A location
+	// is on Tarjan's stack when it has been visited but not yet given a
+	// component.
+	void findStrong(RoadGraph graph) {
+		int n = strong.length;
+		int[] index = new int[n];
+		int[] low = new int[n];
+		Arrays.fill(index, -1);
+		Arrays.fill(strong, -1);
+		// The visited locations not yet given a component ...
+		int[] stack = new int[n];
+		int stackSize = 0;
+		// The depth-first path, with the next road to try from each ...
+		int[] path = new int[n];
+		int[] nextRoad = new int[n];
+		int pathSize = 0;
+		int counter = 0;
+		for (int root = 0; root < n; root++) {
+			if (index[root] >= 0)
+				continue;
+			index[root] = low[root] = counter++;
+			stack[stackSize++] = root;
+			path[pathSize] = root;
+			nextRoad[pathSize++] = graph.offsets[root];
+			while (pathSize > 0) {
+				int v = path[pathSize - 1];
+				if (nextRoad[pathSize - 1] < graph.offsets[v + 1]) {
+					int w = graph.targets[nextRoad[pathSize - 1]++];
+					if (index[w] < 0) {
+						index[w] = low[w] = counter++;
+						stack[stackSize++] = w;
+						path[pathSize] = w;
+						nextRoad[pathSize++] = graph.offsets[w];
+					} else if (strong[w] < 0) {
+						low[v] = Math.min(low[v], index[w]);
+					}
+					continue;
+				}
+				// Every road out of v has been followed ...
+				if (low[v] == index[v]) {
+					int w;
+					do {
+						w = stack[--stackSize];
+						strong[w] = strongCount;
+					} while (w != v);
+					strongCount++;
+				}
+				pathSize--;
+				if (pathSize > 0) {
+					int u = path[pathSize - 1];
+					low[u] = Math.min(low[u], low[v]);
+				}
+			}
+		}
+	}
+
+	// findWeak -- Fill in weak by merging the ends of every road, and then
+	// numbering the resulting sets in order of their first location ID.
+	void findWeak(RoadGraph graph) {
+		int n = weak.length;
+		int[] parent = new int[n];
+		for (int id = 0; id < n; id++) {
+			parent[id] = id;
+		}
+		for (int u = 0; u < n; u++) {
+			for (int e = graph.offsets[u]; e < graph.offsets[u + 1]; e++) {
+				int a = find(parent, u);
+				int b = find(parent, graph.targets[e]);
+				if (a != b) {
+					parent[Math.max(a, b)] = Math.min(a, b);
+				}
+			}
+		}
+		for (int id = 0; id < n; id++) {
+			int root = find(parent, id);
+			weak[id] = (root == id) ? weakCount++ : weak[root];
+		}
+	}
+
+	// find -- Return the representative of the set holding the given
+	// location ID, halving the path to it along the way.
+	static int find(int[] parent, int id) {
+		while (parent[id] != id) {
+			parent[id] = parent[parent[id]];
+			id = parent[id];
+		}
+		return (id);
+	}
+
+}
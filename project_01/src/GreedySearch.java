@@ -20,66 +20,189 @@ public class GreedySearch {
 	// GreedySeach uses the heuristic function.
 	public Heuristic function;
 	public StreetMap graph;
+	// roadGraph, if not null, is a compressed view of the roads of graph,
+	// which is used to expand nodes instead of the Location objects.
+	public RoadGraph roadGraph;
+	// components, if not null, is used to return null at once for
+	// destinations that cannot be reached, without searching.
+	public Components components;
 	public String initialLoc;
 	public String destinationLoc;
 	public int limit, expansionCount = 0;
+	// stats records what the last call to search did.
+	public SearchStats stats = new SearchStats();
 	
 	// sortedFrontier sorts by h(n), the estimated cost of the cheapest path
 	// from n to the goal.
 	public SortedFrontier sortedFrontier = new SortedFrontier(SortBy.h);
-	// explored keeps track of the locations explored.
-	public Set<String> explored = new HashSet<String>();
+	// successors is the cursor used by search to expand each node.
+	Node.Successors successors = new Node.Successors();
+	// explored keeps track of the locations explored, by location ID.
+	public BitSet explored = new BitSet();
+	// tree holds the search tree built by searchTree, which is reused from
+	// one search to the next, and solution is the index in tree of the node
+	// found by the last call to searchTree, or -1 if none was found.
+	public SearchTree tree = new SearchTree();
+	public int solution = -1;
+	// treeFrontier is the frontier of tree, which is reused from one
+	// search to the next as long as roadGraph is not replaced.
+	SortedTreeFrontier treeFrontier;
 	
 	public GreedySearch(StreetMap graph, String initialLoc, String destinationLoc, int limit) {
+		this(graph, null, initialLoc, destinationLoc, limit);
+	}
+	
+	public GreedySearch(StreetMap graph, RoadGraph roadGraph, String initialLoc, String destinationLoc, int limit) {
 		this.function = new GoodHeuristic(graph, graph.findLocation(destinationLoc));
 		this.graph = graph;
+		this.roadGraph = roadGraph;
 		this.initialLoc = initialLoc;
 		this.destinationLoc = destinationLoc;
 		// 0-999 produces a depth of 1000.
 		this.limit = limit - 1;
 	}
 	
+	// search -- Searches for a path from initialLoc to destinationLoc,
+	// returning the node reached at destinationLoc, or null if none was
+	// found, and recording what the search did in stats.
 	public Node search(boolean exploredCheck) {
+		stats.start(exploredCheck ? "greedy" : "greedy-nocheck");
+		return (stats.finish(searchNodes(exploredCheck), expansionCount, explored.cardinality()));
+	}
+	
+	// searchNodes -- Performs the search for search, out of Node objects,
+	// counting the nodes generated, and the largest size of the frontier.
+	Node searchNodes(boolean exploredCheck) {
 		// Prepares a new search.
 		newSearch();
 		
 		Node parent = new Node(graph.findLocation(initialLoc));
+		// Nodes are matched to the destination by location ID. An unknown
+		// destination matches no node.
+		Location destination = graph.findLocation(destinationLoc);
+		int destinationId = (destination == null) ? -1 : destination.id;
 		
-		// Returns parent if initialLoc and destinationLoc are the same,
+		// Returns parent if initialLoc and destinationLoc are the same, and
+		// null if components shows that destinationLoc cannot be reached,
 		// else it adds it to the sorted frontier and an entry is created in
 		// explored.
 		if (initialLoc == destinationLoc) {
 			return parent;
 		}
+		if (components != null && !components.mayReach(parent.loc.id, destinationId)) {
+			return null;
+		}
 		sortedFrontier.addSorted(parent);
-		explored.add(parent.loc.name);
+		explored.set(parent.loc.id);
+		stats.generated++;
 		
 		// Checks if the sorted frontier is empty and if the depth is greater
 		// than the limit. Returns parent if a solution is found, else it
 		// returns null.
 		while (!sortedFrontier.isEmpty() && parent.depth < limit) {
+			stats.frontier(sortedFrontier.size());
 			// Removes the node at the top of the sorted frontier.
 			parent = sortedFrontier.removeTop();
 			
 			// Checks to see if the location of parent matches destinationLoc,
 			// else expands parent and increments expasionCount.
-			if (parent.isDestination(destinationLoc)) {
+			if (parent.isDestination(destinationId)) {
 				return parent;
 			}
 			// parent is expanded according the heuristic function.
-			parent.expand(function);
+			// The successors of parent are visited with a cursor, which
+			// creates a child only once it is known to join the frontier.
+			if (roadGraph == null) {
+				successors.start(parent);
+			} else {
+				successors.start(parent, roadGraph);
+			}
 			expansionCount++;
 			
 			// If false, does not check for reoccurring locations, else
 			// checks for reoccurring locations using the contents in
 			// explored.
 			if (!exploredCheck) {
-				sortedFrontier.addSorted(parent.children);
+				while (successors.next()) {
+					sortedFrontier.addSorted(successors.child(function));
+					stats.generated++;
+				}
+			} else {
+				while (successors.next()) {
+					if (!explored.get(successors.locationId())) {
+						sortedFrontier.addSorted(successors.child(function));
+						stats.generated++;
+						explored.set(successors.locationId());
+					}
+				}
+			}
+		}
+		
+		stats.frontier(sortedFrontier.size());
+		return null;
+	}
+	
+	// searchTree -- Performs the same search as search, with the same
+	// result and expansion count, but builds the search tree in tree rather
+	// than out of Node objects, expanding nodes from roadGraph. If no
+	// RoadGraph was given, one is built and kept in roadGraph. The path to
+	// the solution is returned as a chain of Node objects.
+	public Node searchTree(boolean exploredCheck) {
+		// Prepares a new search, emptying treeFrontier while tree still
+		// holds the nodes left in it by the last search.
+		newSearch();
+		if (treeFrontier != null) {
+			treeFrontier.clear();
+		}
+		tree.clear();
+		solution = -1;
+		if (roadGraph == null) {
+			roadGraph = new RoadGraph(graph);
+		}
+		if (treeFrontier == null || treeFrontier.graph != roadGraph) {
+			treeFrontier = new SortedTreeFrontier(SortBy.h, tree, roadGraph);
+		}
+		
+		int parent = tree.addRoot(graph.findLocation(initialLoc).id);
+		Location destination = graph.findLocation(destinationLoc);
+		int destinationId = (destination == null) ? -1 : destination.id;
+		
+		// Returns parent if initialLoc and destinationLoc are the same, and
+		// null if components shows that destinationLoc cannot be reached,
+		// else it adds it to the sorted frontier and an entry is created in
+		// explored.
+		if (initialLoc == destinationLoc) {
+			solution = parent;
+			return tree.toNode(solution, roadGraph);
+		}
+		if (components != null && !components.mayReach(tree.location(parent), destinationId)) {
+			return null;
+		}
+		treeFrontier.addSorted(parent);
+		explored.set(tree.location(parent));
+		
+		while (!treeFrontier.isEmpty() && tree.depth(parent) < limit) {
+			// Removes the node at the top of the sorted frontier.
+			parent = treeFrontier.removeTop();
+			
+			if (tree.location(parent) == destinationId) {
+				solution = parent;
+				return tree.toNode(solution, roadGraph);
+			}
+			// The children of parent are the nodes from first to the end
+			// of the tree.
+			int first = tree.expand(parent, roadGraph, function);
+			expansionCount++;
+			
+			if (!exploredCheck) {
+				for (int child = first; child < tree.size(); child++) {
+					treeFrontier.addSorted(child);
+				}
 			} else {
-				for (Node child : parent.children) {
-					if (!explored.contains(child.loc.name)) {
-						sortedFrontier.addSorted(child);
-						explored.add(child.loc.name);
+				for (int child = first; child < tree.size(); child++) {
+					if (!explored.get(tree.location(child))) {
+						treeFrontier.addSorted(child);
+						explored.set(tree.location(child));
 					}
 				}
 			}
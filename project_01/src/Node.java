@@ -81,12 +81,153 @@ public class Node {
 		}
 	}
 
+	// expand -- Fill in the collection of children of this node, as the
+	// version of this method that takes no arguments does, but reading the
+	// roads leading out of this node's location from the given RoadGraph.
+	public void expand(RoadGraph graph) {
+		children.clear();
+		int id = loc.id;
+		for (int e = graph.offsets[id]; e < graph.offsets[id + 1]; e++) {
+			Node child = new Node(graph.locations[graph.targets[e]], this);
+			child.depth = this.depth + 1;
+			child.partialPathCost = this.partialPathCost + graph.costs[e];
+			child.heuristicValue = 0.0;
+			children.add(child);
+		}
+	}
+
+	// expand -- Fill in the collection of children of this node, as the
+	// version of this method that takes a heuristic function object does,
+	// but reading the roads leading out of this node's location from the
+	// given RoadGraph.
+	public void expand(RoadGraph graph, Heuristic h) {
+		children.clear();
+		int id = loc.id;
+		for (int e = graph.offsets[id]; e < graph.offsets[id + 1]; e++) {
+			Node child = new Node(graph.locations[graph.targets[e]], this);
+			child.depth = this.depth + 1;
+			child.partialPathCost = this.partialPathCost + graph.costs[e];
+			child.heuristicValue = h.heuristicValue(child);
+			children.add(child);
+		}
+	}
+
+	// successors -- Return a cursor over the successors of this node, one
+	// for each road leading out of its location, which creates a child node
+	// only when asked to. See the Successors class.
+	public Successors successors() {
+		return (new Successors().start(this));
+	}
+
+	// successors -- Return a cursor over the successors of this node, as the
+	// version of this method that takes no arguments does, but reading the
+	// roads leading out of this node's location from the given RoadGraph.
+	public Successors successors(RoadGraph graph) {
+		return (new Successors().start(this, graph));
+	}
+
+	// Successors -- A cursor over the roads leading out of the location of a
+	// node, in the order in which "expand" would create the children for
+	// them. Each call to "next" moves to the next road, whose destination
+	// and cost may then be examined before deciding whether to create the
+	// child node for it, so that no node is created for a child that is to
+	// be discarded, and no list of children is filled in. The children
+	// created are not added to the "children" list of the node. A search
+	// may keep one cursor and restart it for each node it expands.
+	public static class Successors {
+		Node node;
+		RoadGraph graph;
+		// The position of the current road, and the position past the
+		// last one, in the node location's roads or in the RoadGraph ...
+		int road, end;
+
+		// start -- Restart this cursor before the first road leading out of
+		// the location of the given node, and return this cursor.
+		public Successors start(Node node) {
+			this.node = node;
+			this.graph = null;
+			this.road = -1;
+			this.end = node.loc.roads.size();
+			return (this);
+		}
+
+		// start -- Restart this cursor before the first road leading out of
+		// the location of the given node in the given RoadGraph, and return
+		// this cursor.
+		public Successors start(Node node, RoadGraph graph) {
+			this.node = node;
+			this.graph = graph;
+			this.road = graph.offsets[node.loc.id] - 1;
+			this.end = graph.offsets[node.loc.id + 1];
+			return (this);
+		}
+
+		// next -- Move to the next road, returning false if there are none
+		// left.
+		public boolean next() {
+			if (road + 1 >= end)
+				return (false);
+			road++;
+			return (true);
+		}
+
+		// location -- Return the location at the end of the current road.
+		public Location location() {
+			if (graph == null)
+				return (node.loc.roads.get(road).toLocation);
+			return (graph.locations[graph.targets[road]]);
+		}
+
+		// locationId -- Return the ID of the location at the end of the
+		// current road.
+		public int locationId() {
+			if (graph == null)
+				return (node.loc.roads.get(road).toLocation.id);
+			return (graph.targets[road]);
+		}
+
+		// partialPathCost -- Return the partial path cost of the child at
+		// the end of the current road.
+		public double partialPathCost() {
+			if (graph == null)
+				return (node.partialPathCost + node.loc.roads.get(road).cost);
+			return (node.partialPathCost + graph.costs[road]);
+		}
+
+		// child -- Return a new child of the node at the end of the current
+		// road, linked to the node as its parent but not added to its list
+		// of children.
+		public Node child() {
+			Node child = new Node(location(), node);
+			child.depth = node.depth + 1;
+			child.partialPathCost = partialPathCost();
+			child.heuristicValue = 0.0;
+			return (child);
+		}
+
+		// child -- Return a new child of the node at the end of the current
+		// road, as the version of this method that takes no arguments
+		// does, but using the given heuristic function to fill in its
+		// heuristic value.
+		public Node child(Heuristic h) {
+			Node child = child();
+			child.heuristicValue = h.heuristicValue(child);
+			return (child);
+		}
+	}
+
 	// isDestination -- Return true if and only if the name of the
 	// location corresponding to this node matches the provided argument.
 	public boolean isDestination(String destinationName) {
 		return (loc.name.equals(destinationName));
 	}
 
+	// isDestination -- Return true if and only if the ID of the location
+	// corresponding to this node matches the provided argument.
+	public boolean isDestination(int destinationId) {
+		return (loc.id == destinationId);
+	}
+
 	// reportSolution -- Output a textual description of the path from the
 	// root of the search tree (i.e., the initial node) to this node, sending
 	// the description to the given stream. Note that this method is
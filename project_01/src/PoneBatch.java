@@ -0,0 +1,258 @@
+//
+// PoneBatch
+//
+// This class provides a "main" method that runs the search algorithms of
+// Pone on many search problems without prompting, in order to measure how
+// many of them can be answered, and how quickly. The map is read once,
+// from the given location and road files, and a RoadGraph is built from it
+// to be shared by every search. Pairs of initial and destination location
+// names are then read from a query file, one pair per line, and handed in
+// blocks to a pool of worker threads. Each thread keeps its own search
+// objects, which are reused from one query to the next, so that their
+// explored sets and frontiers are not reallocated, and the heuristic
+// function of the greedy and A* searches is only given a new destination.
+// For every query and algorithm, a line of comma-separated values is
+// written, giving whether a solution was found, its depth and path cost,
+// the number of node expansions, and the wall-clock time taken by the
+// search. Lines are written in the order of the queries, whatever the
+// order in which the threads finish them. A summary is sent to the
+// standard error stream.
+//
+// Usage:  java PoneBatch [-threads n] [-limit n] [-algorithms a,b,...]
+//                        [-output file] location-file road-file
+//                        query-file
+//
+// The algorithms are "ucs", "greedy", and "astar", with repeated state
+// checking, "ucs-nocheck", "greedy-nocheck", and "astar-nocheck", without
+// it, and "ucs-tree", "greedy-tree", and "astar-tree", which perform the
+// same searches as the first three but build their search trees in a
+// SearchTree, rather than out of Node objects. By default, "ucs",
+// "greedy", and "astar" are run, on as many threads as there are
+// processors, with Pone's depth limit of 1000. Blank lines and lines
+// starting with "#" in the query file are skipped. A query naming a
+// location that is not on the map is not searched, and is reported as
+// having no solution, with no expansions, as is a query whose destination
+// cannot be reached from its initial location, which the components of
+// the map, found as it is read, reveal at once.
+//
+
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+
+public class PoneBatch {
+	// Queries are handed to the threads in blocks of this many ...
+	static final int BLOCK = 256;
+	static final String HEADER = "query,initial,destination,algorithm,found,depth,cost,expansions,micros";
+
+	// Searcher -- The search objects of one worker thread.
+	static class Searcher {
+		StreetMap graph;
+		UniformCostSearch ucs;
+		GreedySearch gs;
+		AStarSearch as;
+
+		Searcher(StreetMap graph, RoadGraph roads, int limit) {
+			this.graph = graph;
+			this.ucs = new UniformCostSearch(graph, roads, null, null, limit);
+			this.gs = new GreedySearch(graph, roads, null, null, limit);
+			this.as = new AStarSearch(graph, roads, null, null, limit);
+			// Queries that cannot be answered are rejected without
+			// searching ...
+			this.ucs.components = this.gs.components = this.as.components = graph.components();
+		}
+
+		// run -- Run the named algorithm on the given query, appending a
+		// line describing the result to the given buffer.
+		void run(String algorithm, long query, String initialLoc, String destinationLoc, StringBuilder out) {
+			Location destination = graph.findLocation(destinationLoc);
+			if (graph.findLocation(initialLoc) == null || destination == null) {
+				row(out, query, initialLoc, destinationLoc, algorithm, null, 0, 0);
+				return;
+			}
+			ucs.initialLoc = gs.initialLoc = as.initialLoc = initialLoc;
+			ucs.destinationLoc = gs.destinationLoc = as.destinationLoc = destinationLoc;
+			gs.function.setDestination(destination);
+			as.function.setDestination(destination);
+			long start = System.nanoTime();
+			Node solution;
+			int expansions;
+			switch (algorithm) {
+			case "ucs":
+				solution = ucs.search(true);
+				expansions = ucs.expansionCount;
+				break;
+			case "ucs-nocheck":
+				solution = ucs.search(false);
+				expansions = ucs.expansionCount;
+				break;
+			case "greedy":
+				solution = gs.search(true);
+				expansions = gs.expansionCount;
+				break;
+			case "greedy-nocheck":
+				solution = gs.search(false);
+				expansions = gs.expansionCount;
+				break;
+			case "astar":
+				solution = as.search(true);
+				expansions = as.expansionCount;
+				break;
+			case "ucs-tree":
+				solution = ucs.searchTree(true);
+				expansions = ucs.expansionCount;
+				break;
+			case "greedy-tree":
+				solution = gs.searchTree(true);
+				expansions = gs.expansionCount;
+				break;
+			case "astar-tree":
+				solution = as.searchTree(true);
+				expansions = as.expansionCount;
+				break;
+			default:
+				solution = as.search(false);
+				expansions = as.expansionCount;
+				break;
+			}
+			long nanos = System.nanoTime() - start;
+			row(out, query, initialLoc, destinationLoc, algorithm, solution, expansions, nanos);
+		}
+	}
+
+	public static void main(String[] args) {
+		int threads = Runtime.getRuntime().availableProcessors();
+		int limit = 1000;
+		String[] algorithms = { "ucs", "greedy", "astar" };
+		String outputFilename = null;
+		List<String> files = new ArrayList<String>();
+
+		// Process command line arguments ...
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if (i + 1 < args.length && arg.equals("-threads")) {
+				threads = Math.max(1, Integer.parseInt(args[++i]));
+			} else if (i + 1 < args.length && arg.equals("-limit")) {
+				limit = Integer.parseInt(args[++i]);
+			} else if (i + 1 < args.length && arg.equals("-algorithms")) {
+				algorithms = args[++i].split(",");
+			} else if (i + 1 < args.length && arg.equals("-output")) {
+				outputFilename = args[++i];
+			} else {
+				files.add(arg);
+			}
+		}
+		List<String> known = Arrays.asList("ucs", "ucs-nocheck", "greedy", "greedy-nocheck", "astar", "astar-nocheck", "ucs-tree", "greedy-tree", "astar-tree");
+		for (String algorithm : algorithms) {
+			if (!known.contains(algorithm)) {
+				System.err.println("Error:  Unknown algorithm, " + algorithm + ".");
+				return;
+			}
+		}
+		if (files.size() != 3) {
+			System.err.println("Usage:  java PoneBatch [-threads n] [-limit n] [-algorithms a,b,...] [-output file] location-file road-file query-file");
+			return;
+		}
+
+		// Read map ...
+		StreetMap graph = new StreetMap(files.get(0), files.get(1));
+		if (!(graph.readLocations() && graph.readRoads())) {
+			System.err.println("Error:  Unable to read map.");
+			return;
+		}
+		RoadGraph roads = new RoadGraph(graph);
+
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		final int searchLimit = limit;
+		final String[] searchAlgorithms = algorithms;
+		ThreadLocal<Searcher> searchers = ThreadLocal.withInitial(() -> new Searcher(graph, roads, searchLimit));
+		long started = System.nanoTime();
+		long queries = 0;
+		try (BufferedReader in = new BufferedReader(new FileReader(files.get(2)), 1 << 16);
+				Writer out = new BufferedWriter((outputFilename == null)
+						? new OutputStreamWriter(System.out) : new FileWriter(outputFilename), 1 << 16)) {
+			out.write(HEADER);
+			out.write('\n');
+			// Blocks in progress, oldest first, of which at most a few per
+			// thread are kept, so the query file is never held in memory ...
+			ArrayDeque<Future<StringBuilder>> pending = new ArrayDeque<Future<StringBuilder>>();
+			String[][] block;
+			while ((block = readBlock(in)) != null) {
+				final String[][] queryBlock = block;
+				final long first = queries + 1;
+				queries += block.length;
+				pending.add(pool.submit(() -> {
+					Searcher searcher = searchers.get();
+					StringBuilder rows = new StringBuilder();
+					for (int i = 0; i < queryBlock.length; i++) {
+						for (String algorithm : searchAlgorithms) {
+							searcher.run(algorithm, first + i, queryBlock[i][0], queryBlock[i][1], rows);
+						}
+					}
+					return (rows);
+				}));
+				if (pending.size() >= 4 * threads) {
+					out.append(pending.remove().get());
+				}
+			}
+			while (!pending.isEmpty()) {
+				out.append(pending.remove().get());
+			}
+		} catch (IOException e) {
+			// Something went wrong ...
+			System.err.println("Error:  " + e.getMessage());
+		} catch (InterruptedException | ExecutionException e) {
+			System.err.println("Error:  " + e.getMessage());
+		} finally {
+			pool.shutdownNow();
+		}
+		double seconds = (System.nanoTime() - started) / 1e9;
+		System.err.printf("%d queries, %d searches, %.3f seconds, %.1f queries per second, %d threads.\n",
+				queries, queries * algorithms.length, seconds, queries / seconds, threads);
+	}
+
+	// readBlock -- Read the next block of queries from the given stream, as
+	// pairs of names, returning null at the end of the stream.
+	static String[][] readBlock(BufferedReader in) throws IOException {
+		List<String[]> block = new ArrayList<String[]>(BLOCK);
+		String line;
+		while (block.size() < BLOCK && (line = in.readLine()) != null) {
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith("#"))
+				continue;
+			String[] names = line.split("\\s+");
+			if (names.length != 2) {
+				System.err.println("Skipping malformed query: " + line);
+				continue;
+			}
+			block.add(names);
+		}
+		return (block.isEmpty() ? null : block.toArray(new String[block.size()][]));
+	}
+
+	// row -- Append a line of comma-separated values describing the result
+	// of one search to the given buffer.
+	static void row(StringBuilder out, long query, String initialLoc, String destinationLoc, String algorithm, Node solution, int expansions, long nanos) {
+		out.append(query).append(',');
+		field(out, initialLoc).append(',');
+		field(out, destinationLoc).append(',');
+		out.append(algorithm).append(',');
+		if (solution == null) {
+			out.append("false,,,");
+		} else {
+			out.append("true,").append(solution.depth).append(',').append(solution.partialPathCost).append(',');
+		}
+		out.append(expansions).append(',').append(nanos / 1000).append('\n');
+	}
+
+	// field -- Append the given value to the given buffer, quoted if it
+	// contains a comma or a quotation mark.
+	static StringBuilder field(StringBuilder out, String value) {
+		if (value.indexOf(',') < 0 && value.indexOf('"') < 0)
+			return (out.append(value));
+		return (out.append('"').append(value.replace("\"", "\"\"")).append('"'));
+	}
+
+}
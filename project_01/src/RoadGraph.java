@@ -0,0 +1,87 @@
+//
+// RoadGraph
+//
+// This class implements an immutable, compressed view of the roads of a
+// StreetMap, for use by search algorithms. The roads leading out of all of
+// the locations are laid end to end in two parallel arrays, one holding the
+// location ID at the end of each road and the other holding its cost, with
+// the roads leading out of each location kept together, in the order in
+// which they were recorded. A third array holds, for each location ID,
+// the position of its first road, so the roads out of location "i" occupy
+// positions "offsets[i]" up to, but not including, "offsets[i+1]".
+// Expanding a node thus reads a few consecutive array elements, rather
+// than following references from Location objects to Road objects to
+// Location objects. The view is a snapshot: locations or roads recorded
+// in the StreetMap after it is built are not reflected in it.
+//
+
+
+public class RoadGraph {
+    Location[] locations;
+    int[] offsets;
+    int[] targets;
+    double[] costs;
+
+	// Constructor with the StreetMap to be viewed specified ...
+	public RoadGraph(StreetMap map) {
+		int n = map.locationCount();
+		this.locations = new Location[n];
+		this.offsets = new int[n + 1];
+		int roadCount = 0;
+		for (int id = 0; id < n; id++) {
+			locations[id] = map.location(id);
+			roadCount += locations[id].roads.size();
+		}
+		this.targets = new int[roadCount];
+		this.costs = new double[roadCount];
+		int e = 0;
+		for (int id = 0; id < n; id++) {
+			offsets[id] = e;
+			for (Road r : locations[id].roads) {
+				targets[e] = r.toLocation.id;
+				costs[e] = r.cost;
+				e++;
+			}
+		}
+		offsets[n] = e;
+	}
+
+	// locationCount -- Return the number of locations in this graph.
+	public int locationCount() {
+		return (locations.length);
+	}
+
+	// roadCount -- Return the number of roads in this graph.
+	public int roadCount() {
+		return (targets.length);
+	}
+
+	// location -- Return the Location object with the given location ID.
+	public Location location(int id) {
+		return (locations[id]);
+	}
+
+	// firstRoad -- Return the position of the first road leading out of the
+	// location with the given ID.
+	public int firstRoad(int id) {
+		return (offsets[id]);
+	}
+
+	// endRoad -- Return the position just past the last road leading out of
+	// the location with the given ID.
+	public int endRoad(int id) {
+		return (offsets[id + 1]);
+	}
+
+	// target -- Return the location ID at the end of the road at the given
+	// position.
+	public int target(int road) {
+		return (targets[road]);
+	}
+
+	// cost -- Return the cost of the road at the given position.
+	public double cost(int road) {
+		return (costs[road]);
+	}
+
+}
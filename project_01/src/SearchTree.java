@@ -0,0 +1,188 @@
+//
+// SearchTree
+//
+// This class implements a search tree as a collection of parallel arrays,
+// rather than as a collection of linked Node objects. Each node of the tree
+// is identified by its index, and the location ID of its state, the index of
+// its parent, its depth, its partial path cost, and its heuristic value are
+// stored at that index in five arrays. Expanding a node appends its children
+// to the end of the arrays, so the children of a node always occupy
+// consecutive indices, and no lists of children are kept. The arrays are kept
+// when the tree is cleared, so a SearchTree that is reused for many searches
+// stops allocating memory once it has grown to fit the largest of them. The
+// path to a node is recovered by following the parent indices, either to
+// report it or to build the equivalent chain of Node objects.
+//
+
+
+import java.io.*;
+import java.util.*;
+
+
+public class SearchTree {
+    int[] location;
+    int[] parent;
+    int[] depth;
+    double[] partialPathCost;
+    double[] heuristicValue;
+    int size;
+    // probe is a Node handed to heuristic functions, which take Node
+    // objects, standing in for each child in turn ...
+    Node probe;
+
+	// Default constructor ...
+	public SearchTree() {
+		this.location = new int[1024];
+		this.parent = new int[1024];
+		this.depth = new int[1024];
+		this.partialPathCost = new double[1024];
+		this.heuristicValue = new double[1024];
+		this.size = 0;
+		this.probe = new Node();
+	}
+
+	// clear -- Remove every node from this tree, keeping its storage for
+	// later use.
+	public void clear() {
+		size = 0;
+	}
+
+	// size -- Return the number of nodes in this tree.
+	public int size() {
+		return (size);
+	}
+
+	// location -- Return the location ID of the state of the given node.
+	public int location(int node) {
+		return (location[node]);
+	}
+
+	// parent -- Return the index of the parent of the given node, or -1 if
+	// it is the root.
+	public int parent(int node) {
+		return (parent[node]);
+	}
+
+	// depth -- Return the depth of the given node.
+	public int depth(int node) {
+		return (depth[node]);
+	}
+
+	// partialPathCost -- Return the partial path cost of the given node.
+	public double partialPathCost(int node) {
+		return (partialPathCost[node]);
+	}
+
+	// heuristicValue -- Return the heuristic value of the given node.
+	public double heuristicValue(int node) {
+		return (heuristicValue[node]);
+	}
+
+	// addRoot -- Add a node with no parent, whose state is the location with
+	// the given ID, and return its index.
+	public int addRoot(int locationId) {
+		int node = allocate();
+		location[node] = locationId;
+		parent[node] = -1;
+		depth[node] = 0;
+		partialPathCost[node] = 0.0;
+		heuristicValue[node] = 0.0;
+		return (node);
+	}
+
+	// expand -- Add the children of the given node, one for each road
+	// leading out of its location in the given RoadGraph, in order, with
+	// heuristic values of zero. Return the index of the first child; the
+	// children occupy the indices from there up to, but not including,
+	// "size()".
+	public int expand(int node, RoadGraph graph) {
+		return (expand(node, graph, null));
+	}
+
+	// expand -- Add the children of the given node, as the version of this
+	// method that takes no heuristic function does, but using the given
+	// heuristic function to fill in the heuristic values of the children.
+	public int expand(int node, RoadGraph graph, Heuristic h) {
+		int first = size;
+		int id = location[node];
+		for (int e = graph.offsets[id]; e < graph.offsets[id + 1]; e++) {
+			int child = allocate();
+			location[child] = graph.targets[e];
+			parent[child] = node;
+			depth[child] = depth[node] + 1;
+			partialPathCost[child] = partialPathCost[node] + graph.costs[e];
+			if (h == null) {
+				heuristicValue[child] = 0.0;
+			} else {
+				probe.loc = graph.locations[graph.targets[e]];
+				probe.depth = depth[child];
+				probe.partialPathCost = partialPathCost[child];
+				heuristicValue[child] = h.heuristicValue(probe);
+			}
+		}
+		return (first);
+	}
+
+	// allocate -- Return the index of a new node at the end of the arrays,
+	// growing them if they are full.
+	int allocate() {
+		if (size == location.length) {
+			int capacity = 2 * size;
+			location = Arrays.copyOf(location, capacity);
+			parent = Arrays.copyOf(parent, capacity);
+			depth = Arrays.copyOf(depth, capacity);
+			partialPathCost = Arrays.copyOf(partialPathCost, capacity);
+			heuristicValue = Arrays.copyOf(heuristicValue, capacity);
+		}
+		return (size++);
+	}
+
+	// toNode -- Return a chain of Node objects equivalent to the path from
+	// the root of this tree to the given node, so that the result of a
+	// search can be used wherever a Node is expected. Only the nodes on the
+	// path are created, and they have no children.
+	public Node toNode(int node, RoadGraph graph) {
+		if (node < 0)
+			return (null);
+		int[] path = path(node);
+		Node result = null;
+		for (int n : path) {
+			result = new Node(graph.location(location[n]), result);
+			result.depth = depth[n];
+			result.partialPathCost = partialPathCost[n];
+			result.heuristicValue = heuristicValue[n];
+		}
+		return (result);
+	}
+
+	// path -- Return the indices of the nodes on the path from the root of
+	// this tree to the given node, root first.
+	int[] path(int node) {
+		int[] path = new int[depth[node] + 1];
+		for (int n = node, i = path.length - 1; i >= 0; n = parent[n], i--) {
+			path[i] = n;
+		}
+		return (path);
+	}
+
+	// reportSolution -- Output a textual description of the path from the
+	// root of this tree to the given node, sending the description to the
+	// given stream, in the same form as the "reportSolution" method of the
+	// Node class. The path is found by following parent indices back from
+	// the given node, so no recursion is needed.
+	public void reportSolution(int node, RoadGraph graph, OutputStream str) {
+		PrintWriter out = new PrintWriter(str, true);
+		int[] path = path(node);
+		out.printf("START AT ");
+		graph.location(location[path[0]]).write(str, false);
+		out.printf(".\n");
+		for (int i = 1; i < path.length; i++) {
+			Location from = graph.location(location[path[i - 1]]);
+			Location to = graph.location(location[path[i]]);
+			out.printf("TAKE ");
+			(from.findRoad(to)).write(str, true);
+			out.printf(".\n");
+		}
+	}
+
+}
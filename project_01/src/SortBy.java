@@ -0,0 +1,10 @@
+//
+// SortBy
+//
+// This enumeration names the statistics by which the nodes of a
+// SortedFrontier or a SortedTreeFrontier may be sorted: "g", the partial
+// path cost, "h", the heuristic value, and "f", the sum of the two.
+//
+
+
+enum SortBy { g, h, f }
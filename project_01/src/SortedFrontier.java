@@ -11,7 +11,9 @@
 // is the first to be removed. Note that the insertion method is overloaded
 // to accept either an individual Node or a list of multiple Node
 // objects. This class is intended to to be used to implement the frontier
-// (i.e., the "fringe" or "open list") of nodes in a search tree.
+// (i.e., the "fringe" or "open list") of nodes in a search tree. The nodes
+// in the frontier are also kept in an array indexed by the location IDs of
+// their states, so that "contains" and "find" do no hashing of names.
 //
 // David Noelle -- Created Tue Feb 27 11:25:05 PST 2007
 //                 Modified Wed Oct  6 02:32:34 PDT 2010
@@ -23,9 +25,6 @@ import java.util.*;
 import java.io.*;
 
 
-enum SortBy { g, h, f }
-
-
 class NodeComparator implements Comparator<Node>, Serializable {
     static final long serialVersionUID = 1;  // Version 1
     SortBy statistic;
@@ -91,14 +90,16 @@ class NodeComparator implements Comparator<Node>, Serializable {
 public class SortedFrontier {
     SortBy sortingStrategy;
     SortedSet<Node> sortedFringe;
-    Map<String, Node> mappedFringe;
+    // mappedFringe holds, at each location ID, the node in the frontier
+    // with that location as its state, or null ...
+    Node[] mappedFringe;
 
 	// Default constructor ...
 	public SortedFrontier() {
 		this.sortingStrategy = SortBy.g;
 		Comparator<Node> sortingComparator = new NodeComparator(this.sortingStrategy);
 		this.sortedFringe = new TreeSet<Node>(sortingComparator);
-		this.mappedFringe = new HashMap<String, Node>();
+		this.mappedFringe = new Node[16];
 	}
 
 	// Constructor with sorting strategy specified ...
@@ -106,7 +107,7 @@ public class SortedFrontier {
 		this.sortingStrategy = strategy;
 		Comparator<Node> sortingComparator = new NodeComparator(this.sortingStrategy);
 		this.sortedFringe = new TreeSet<Node>(sortingComparator);
-		this.mappedFringe = new HashMap<String, Node>();
+		this.mappedFringe = new Node[16];
 	}
 
 	// isEmpty -- Return true if and only if there are currently no nodes in
@@ -115,6 +116,11 @@ public class SortedFrontier {
 		return (sortedFringe.isEmpty());
 	}
 
+	// size -- Return the number of nodes in the frontier.
+	public int size() {
+		return (sortedFringe.size());
+	}
+
 	// removeTop -- Return the Node object at the top of the frontier
 	// list. Also, remove this node from the frontier. Return null if the
 	// frontier is empty.
@@ -124,7 +130,7 @@ public class SortedFrontier {
 		} else {
 			Node top = sortedFringe.first();
 			sortedFringe.remove(top);
-			mappedFringe.remove(top.loc.name);
+			unmap(top);
 			return (top);
 		}
 	}
@@ -133,13 +139,13 @@ public class SortedFrontier {
 	// appropriate position, given its sorting statistics.
 	public void addSorted(Node thisNode) {
 		sortedFringe.add(thisNode);
-		if (mappedFringe.get(thisNode.loc.name) != null) {
-			// This is another node with the same location name, which
-			// should never appear in the frontier. Still, for the sake
-			// of safety, remove it ...
-			mappedFringe.remove(thisNode.loc.name);
+		int id = thisNode.loc.id;
+		if (id >= mappedFringe.length) {
+			mappedFringe = Arrays.copyOf(mappedFringe, Math.max(id + 1, 2 * mappedFringe.length));
 		}
-		mappedFringe.put(thisNode.loc.name, thisNode);
+		// If there is another node with the same location, which should
+		// never appear in the frontier, it is replaced ...
+		mappedFringe[id] = thisNode;
 	}
     
 	// addSorted -- Add the given list of Node objects to the frontier
@@ -153,7 +159,16 @@ public class SortedFrontier {
 	// remove -- Remove a specified Node object from the frontier.
 	public void remove(Node thisNode) {
 		sortedFringe.remove(thisNode);
-		mappedFringe.remove(thisNode.loc.name);
+		unmap(thisNode);
+	}
+
+	// unmap -- Forget the node in the frontier with the same location as
+	// the given Node object.
+	void unmap(Node thisNode) {
+		int id = thisNode.loc.id;
+		if (id < mappedFringe.length) {
+			mappedFringe[id] = null;
+		}
 	}
 
 	// remove -- Remove all of the Node objects in the given list from
@@ -164,17 +179,23 @@ public class SortedFrontier {
 		}
 	}
 
+	// contains -- Return true if and only if the frontier contains a
+	// Node with the given location ID.
+	public boolean contains(int id) {
+		return (find(id) != null);
+	}
+
 	// contains -- Return true if and only if the frontier contains a
 	// Node with the given Location name.
 	public boolean contains(String name) {
-		Node thisNode = mappedFringe.get(name);
+		Node thisNode = find(name);
 		return (thisNode != null);
 	}
 
 	// contains -- Return true if and only if the frontier contains a
 	// Node with the given Location object as its state.
 	public boolean contains(Location loc) {
-		return (contains(loc.name));
+		return (contains(loc.id));
 	}
 
 	// contains -- Return true if and only if the frontier contains an
@@ -184,21 +205,31 @@ public class SortedFrontier {
 		return (contains(thisNode.loc));
 	}
 
-	// find -- Return a Node in the frontier with the given location
-	// name, or null if there is no such Node.
-	public Node find(String name) {
-		Node thisNode = mappedFringe.get(name);
-		if (thisNode != null) {
-			return (thisNode);
+	// find -- Return a Node in the frontier with the given location ID,
+	// or null if there is no such Node.
+	public Node find(int id) {
+		if (id >= 0 && id < mappedFringe.length) {
+			return (mappedFringe[id]);
 		} else {
 			return (null);
 		}
 	}
 
+	// find -- Return a Node in the frontier with the given location
+	// name, or null if there is no such Node. Names are only compared
+	// here, so this takes time proportional to the size of the frontier.
+	public Node find(String name) {
+		for (Node thisNode : sortedFringe) {
+			if (thisNode.loc.name.equals(name) && mappedFringe[thisNode.loc.id] == thisNode)
+				return (thisNode);
+		}
+		return (null);
+	}
+
 	// find -- Return a Node in the frontier with the given location
 	// name, or null if there is no such Node.
 	public Node find(Location loc) {
-		return (find(loc.name));
+		return (find(loc.id));
 	}
 
 	// find -- Return a Node in the frontier with the same location
@@ -0,0 +1,254 @@
+//
+// SortedTreeFrontier
+//
+// This class implements a priority queue of the nodes of a SearchTree,
+// identified by their indices, for searches that build their search trees
+// in a SearchTree rather than out of Node objects. It behaves exactly as a
+// SortedFrontier does: nodes are sorted by partial path cost, by heuristic
+// value, or by their sum, ties are broken by a TreeNodeComparator in the
+// same way as a NodeComparator breaks them, and the node in the frontier
+// for each location can be found by its location ID. The indices are kept
+// in a binary heap of ints, so adding and removing nodes boxes nothing,
+// and a frontier that is cleared and reused for many searches stops
+// allocating memory once it has grown to fit the largest of them.
+//
+
+
+import java.util.*;
+import java.io.*;
+
+
+class TreeNodeComparator implements Comparator<Integer>, Serializable {
+    static final long serialVersionUID = 1;  // Version 1
+    SortBy statistic;
+    SearchTree tree;
+    RoadGraph graph;
+
+	// Constructor with sorting criterion, tree, and graph arguments ...
+	public TreeNodeComparator(SortBy strategy, SearchTree tree, RoadGraph graph) {
+		this.statistic = strategy;
+		this.tree = tree;
+		this.graph = graph;
+	}
+
+	// compare -- Determine which of two nodes of the tree is "larger",
+	// according to the Comparator protocol, breaking ties as NodeComparator
+	// does.
+	public int compare(Integer thisNode1, Integer thisNode2) {
+		return (compare(thisNode1.intValue(), thisNode2.intValue()));
+	}
+
+	int compare(int node1, int node2) {
+		if (node1 < 0 || node2 < 0) {
+			// A parent is missing, which a NodeComparator cannot handle,
+			// so order the missing parent first ...
+			return (Integer.compare(node1, node2));
+		}
+		// Extract the appropriate statistics ...
+		double val1 = 0.0;
+		double val2 = 0.0;
+		switch (statistic) {
+		case g:
+			val1 = tree.partialPathCost[node1];
+			val2 = tree.partialPathCost[node2];
+			break;
+		case h:
+			val1 = tree.heuristicValue[node1];
+			val2 = tree.heuristicValue[node2];
+			break;
+		case f:
+			val1 = tree.partialPathCost[node1] + tree.heuristicValue[node1];
+			val2 = tree.partialPathCost[node2] + tree.heuristicValue[node2];
+			break;
+		}
+		// Compare values ...
+		if (val1 < val2)
+			return (-1);
+		if (val1 > val2)
+			return (1);
+		if (node1 == node2) {
+			// This is the exact same node ...
+			return (0);
+		} else if (tree.location[node1] == tree.location[node2]) {
+			// Even the locations are the same, so order the two nodes
+			// based on the ordering of their parents in the search tree ...
+			return (this.compare(tree.parent[node1], tree.parent[node2]));
+		} else {
+			// The locations differ, so we can use the alphabetical
+			// ordering of their names to order the nodes ...
+			return (graph.locations[tree.location[node1]].name.compareTo(graph.locations[tree.location[node2]].name));
+		}
+	}
+
+}
+
+
+public class SortedTreeFrontier {
+    SortBy sortingStrategy;
+    SearchTree tree;
+    RoadGraph graph;
+    TreeNodeComparator comparator;
+    // heap holds the indices of the nodes in the frontier, as a binary heap
+    // ordered by comparator, in its first "size" entries ...
+    int[] heap;
+    int size;
+    // position holds, at each node index, the position of that node in
+    // heap, which is only meaningful while the node is in the frontier ...
+    int[] position;
+    // mappedFringe holds, at each location ID, the index of the node in the
+    // frontier with that location as its state, or -1 ...
+    int[] mappedFringe;
+
+	// Constructor with sorting strategy, tree, and graph specified ...
+	public SortedTreeFrontier(SortBy strategy, SearchTree tree, RoadGraph graph) {
+		this.sortingStrategy = strategy;
+		this.tree = tree;
+		this.graph = graph;
+		this.comparator = new TreeNodeComparator(this.sortingStrategy, tree, graph);
+		this.heap = new int[1024];
+		this.size = 0;
+		this.position = new int[1024];
+		this.mappedFringe = new int[graph.locationCount()];
+		Arrays.fill(this.mappedFringe, -1);
+	}
+
+	// clear -- Remove every node from the frontier, keeping its storage for
+	// later use. Only the entries of mappedFringe for the nodes still in the
+	// frontier are reset, as every other entry is already -1, so clearing
+	// takes time in proportion to the size of the frontier rather than to
+	// the number of locations. This must be called before the tree is
+	// cleared, while the locations of the nodes can still be looked up.
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			mappedFringe[tree.location(heap[i])] = -1;
+		}
+		size = 0;
+	}
+
+	// isEmpty -- Return true if and only if there are currently no nodes in
+	// the frontier.
+	public boolean isEmpty() {
+		return (size == 0);
+	}
+
+	// size -- Return the number of nodes currently in the frontier.
+	public int size() {
+		return (size);
+	}
+
+	// removeTop -- Return the index of the node at the top of the frontier.
+	// Also, remove this node from the frontier. Return -1 if the frontier
+	// is empty.
+	public int removeTop() {
+		if (size == 0) {
+			return (-1);
+		} else {
+			int top = heap[0];
+			removeAt(0);
+			mappedFringe[tree.location(top)] = -1;
+			return (top);
+		}
+	}
+
+	// addSorted -- Add the given node to the frontier in the appropriate
+	// position, given its sorting statistics. If there is another node
+	// with the same location, which should never appear in the frontier, it
+	// is replaced in the map of locations. A node that the comparator finds
+	// equal to one already in the frontier is not added, as a TreeSet would
+	// not add it; such a node can only be a sibling reached by a parallel
+	// road, which is the node mapped to its location.
+	public void addSorted(int node) {
+		int location = tree.location(node);
+		int other = mappedFringe[location];
+		if (other >= 0 && comparator.compare(other, node) == 0) {
+			return;
+		}
+		if (size == heap.length) {
+			heap = Arrays.copyOf(heap, 2 * size);
+		}
+		if (node >= position.length) {
+			position = Arrays.copyOf(position, Math.max(node + 1, 2 * position.length));
+		}
+		heap[size] = node;
+		position[node] = size;
+		siftUp(size++);
+		mappedFringe[location] = node;
+	}
+
+	// remove -- Remove the given node from the frontier.
+	public void remove(int node) {
+		if (node < position.length) {
+			int i = position[node];
+			if (i < size && heap[i] == node) {
+				removeAt(i);
+			}
+		}
+		mappedFringe[tree.location(node)] = -1;
+	}
+
+	// find -- Return the index of the node in the frontier with the given
+	// location ID, or -1 if there is no such node, as there never is for a
+	// negative ID.
+	public int find(int locationId) {
+		if (locationId >= 0 && locationId < mappedFringe.length) {
+			return (mappedFringe[locationId]);
+		} else {
+			return (-1);
+		}
+	}
+
+	// contains -- Return true if and only if the frontier contains a node
+	// with the given location ID.
+	public boolean contains(int locationId) {
+		return (find(locationId) >= 0);
+	}
+
+	// removeAt -- Remove the node at the given position in the heap, moving
+	// the last node into its place.
+	void removeAt(int i) {
+		int last = heap[--size];
+		if (i < size) {
+			heap[i] = last;
+			position[last] = i;
+			siftDown(i);
+			siftUp(position[last]);
+		}
+	}
+
+	// siftUp -- Move the node at the given position in the heap up past
+	// every parent that sorts after it.
+	void siftUp(int i) {
+		int node = heap[i];
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (comparator.compare(node, heap[parent]) >= 0)
+				break;
+			heap[i] = heap[parent];
+			position[heap[i]] = i;
+			i = parent;
+		}
+		heap[i] = node;
+		position[node] = i;
+	}
+
+	// siftDown -- Move the node at the given position in the heap down past
+	// every child that sorts before it.
+	void siftDown(int i) {
+		int node = heap[i];
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= size)
+				break;
+			if (child + 1 < size && comparator.compare(heap[child + 1], heap[child]) < 0)
+				child++;
+			if (comparator.compare(heap[child], node) >= 0)
+				break;
+			heap[i] = heap[child];
+			position[heap[i]] = i;
+			i = child;
+		}
+		heap[i] = node;
+		position[node] = i;
+	}
+
+}
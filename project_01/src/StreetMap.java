@@ -13,7 +13,9 @@
 // advance of their being read and parsed. The map is stored as a collection
 // of Location objects, with each Location being given the responsibility of
 // maintaining all of the Road objects corresponding to road segments leading
-// out of it.
+// out of it. As it is recorded, each location is also given a dense
+// integer ID, its position in the collection, so that search code can keep
+// per-location state in arrays rather than in tables keyed by name.
 //
 // David Noelle -- Sun Feb 11 18:05:18 PST 2007
 //                 Modified Sun Sep 23 18:34:05 PDT 2018
@@ -29,10 +31,17 @@ public class StreetMap {
     String locationFilename = "locations.dat";
     String roadFilename = "roads.dat";
     List<Location> locations;
+    // locationsByName indexes the locations by name as they are recorded,
+    // so that resolving the ends of each road takes constant time ...
+    HashMap<String, Location> locationsByName;
+    // components holds the connected components of the map, once they
+    // have been found ...
+    Components components;
 
 	// Default constructor ...
 	public StreetMap() {
 		this.locations = new ArrayList<Location>();
+		this.locationsByName = new HashMap<String, Location>();
 	}
 
 	// Constructor with filenames specified ...
@@ -78,21 +87,42 @@ public class StreetMap {
 		return (true);
 	}
 
-	// findLocation -- Search through the collection of locations on this map
-	// for one with the given textual name. Return a reference to the
+	// findLocation -- Look up the location on this map with the given
+	// textual name in the index of names. Return a reference to the
 	// corresponding Location object, or null if no such location is found.
+	// If several locations share the name, the first one recorded is found.
 	public Location findLocation(String name) {
-		for (Location loc : locations) {
-			if (loc.name.equals(name))
-				return (loc);
-		}
-		return (null);
+		return (locationsByName.get(name));
 	}
 
 	// recordLocation -- Add the given Location object to the collection of
-	// locations for this map.
+	// locations for this map, giving it the next location ID.
 	public void recordLocation(Location loc) {
+		loc.id = locations.size();
 		locations.add(loc);
+		locationsByName.putIfAbsent(loc.name, loc);
+		components = null;
+	}
+
+	// location -- Return the Location object with the given location ID.
+	public Location location(int id) {
+		return (locations.get(id));
+	}
+
+	// locationCount -- Return the number of locations on this map, which is
+	// one more than the largest location ID.
+	public int locationCount() {
+		return (locations.size());
+	}
+
+	// components -- Return the connected components of this map, which tell
+	// which locations cannot be reached from which others. They are found
+	// when the roads are read, or else the first time they are requested,
+	// and kept until the map changes.
+	public Components components() {
+		if (components == null)
+			components = new Components(new RoadGraph(this));
+		return (components);
 	}
 
 	// readLocations -- Attempt to open the location file specified by the
@@ -104,17 +134,16 @@ public class StreetMap {
 		try {
 			File locFile = new File(locationFilename);
 			if (locFile.exists() && locFile.canRead()) {
-				FileInputStream locFileIn = new FileInputStream(locFile);
-				InputStreamReader locISReader = new InputStreamReader(locFileIn);
-				BufferedReader locBufferedReader = new BufferedReader(locISReader);
+				MapFileReader locReader = MapFileReader.open(locationFilename);
 				// Allocate storage for the first location to be read ...
 				Location loc = new Location();
-				while (loc.read(locBufferedReader)) {
+				while (loc.read(locReader)) {
 					// Record location in the map ...
 					recordLocation(loc);
 					// Allocate storage for the next location ...
 					loc = new Location();
 				}
+				locReader.close();
 				return (true);
 			} else {
 				// The file cannot be read ...
@@ -136,26 +165,25 @@ public class StreetMap {
 	// "readLocations" method before calling this method. Return false on
 	// error.
 	public boolean readRoads() {
+		components = null;
 		try {
 			File roadFile = new File(roadFilename);
 			if (roadFile.exists() && roadFile.canRead()) {
-				FileInputStream roadFileIn = new FileInputStream(roadFile);
-				InputStreamReader roadISReader = new InputStreamReader(roadFileIn);
-				BufferedReader roadBufferedReader = new BufferedReader(roadISReader);
+				MapFileReader roadReader = MapFileReader.open(roadFilename);
 				// Allocate storage for the first road segment ot be read ...
 				Road r = new Road();
-				while (r.read(roadBufferedReader)) {
+				while (r.read(roadReader)) {
 					// Fill in connections to location objects ...
 					r.fromLocation = findLocation(r.fromLocationName);
 					if (r.fromLocation == null) {
 						System.err.printf("The location, %s, is not known.\n", r.fromLocationName);
-						roadBufferedReader.close();
+						roadReader.close();
 						return (false);
 					}
 					r.toLocation = findLocation(r.toLocationName);
 					if (r.toLocation == null) {
 						System.err.printf("The location, %s, is not known.\n", r.toLocationName);
-						roadBufferedReader.close();
+						roadReader.close();
 						return (false);
 					}
 					// Record the road in the appropriate location ...
@@ -163,6 +191,10 @@ public class StreetMap {
 					// Allocate storage for the next road segment ...
 					r = new Road();
 				}
+				roadReader.close();
+				// Find the components of the finished map now, so that the
+				// first search does not wait for them ...
+				components = new Components(new RoadGraph(this));
 				return (true);
 			} else {
 				// The specified road file could not be read ...